@@ -0,0 +1,32 @@
+package chess.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/*
+ * Runs the JMH benchmarks of this module with the GC profiler always on,
+ * so every result comes with its allocation rate per operation and the
+ * collections during measurement.
+ *
+ *   java -jar benchmarks/target/benchmarks.jar [JMH options] [benchmark regex]
+ *
+ * Any JMH command line option works, e.g. -p position=endgame to pick
+ * positions or -f 1 -wi 2 -i 3 for a quick run. Forks, warmup and
+ * measurement default to what the benchmark classes declare.
+ */
+public class Benchmarks {
+    public static void main(String[] args) throws CommandLineOptionException, IOException, RunnerException {
+        CommandLineOptions options = new CommandLineOptions(args);
+        if (options.shouldHelp()) {
+            options.showHelp();
+            return;
+        }
+        new Runner(new OptionsBuilder().parent(options).addProfiler(GCProfiler.class).build()).run();
+    }
+}
@@ -0,0 +1,65 @@
+package chess.benchmark;
+
+import chess.ChessBoard;
+import chess.Fen;
+import chess.FenExporter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// loading and exporting FEN on each position
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Thread)
+public class FenBenchmark {
+    @Param({"opening", "italian", "middlegame", "closed", "endgame", "rookEnding"})
+    private String position;
+
+    private String fen;
+    private final ChessBoard board = new ChessBoard();
+    private final ChessBoard target = new ChessBoard();
+    private FenExporter exporter;
+    private int move;
+
+    @Setup
+    public void setup() {
+        fen = Positions.fen(position);
+        board.loadFen(fen);
+        exporter = new FenExporter(board);
+        move = board.legalMoves().get(0);
+    }
+
+    @Benchmark
+    public ChessBoard loadFen() {
+        target.loadFen(fen);
+        return target;
+    }
+
+    @Benchmark
+    public String fenExport() {
+        return Fen.toFen(board);
+    }
+
+    // one move played and taken back between exports, only the rows it touched are encoded again
+    @Benchmark
+    public CharSequence fenExporterPerMove(Blackhole bh) {
+        board.makeMove(move);
+        bh.consume(exporter.export());
+        board.unmakeMove();
+        return exporter.export();
+    }
+}
@@ -0,0 +1,68 @@
+package chess.benchmark;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * ChessGame's check and checkmate detection on each position, and a short
+ * game played through moveIfLegal the way the UI plays it. Nothing asks
+ * the board for its legal move list, so isCheckmate is not answered from
+ * that cache.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class GameBenchmark {
+    // a miniature ending in mate, replayed from the start position
+    private static final String[] GAME = {
+            "e2e4", "e7e5", "f1c4", "b8c6", "d1h5", "g8f6", "h5f7"
+    };
+
+    @State(Scope.Thread)
+    public static class Detection {
+        @Param({"opening", "middlegame", "endgame", "check", "mate"})
+        private String position;
+
+        private final ChessGame game = new ChessGame();
+
+        @Setup
+        public void setup() {
+            game.loadFen(Positions.fen(position));
+        }
+    }
+
+    @Benchmark
+    public boolean isInCheck(Detection state) {
+        return state.game.isInCheck();
+    }
+
+    @Benchmark
+    public boolean isCheckmate(Detection state) {
+        return state.game.isCheckmate();
+    }
+
+    @Benchmark
+    public ChessGame moveIfLegal() {
+        ChessGame game = new ChessGame();
+        for (String move : GAME) {
+            game.moveIfLegal(new ChessBoard.Position(move.substring(0, 2)),
+                    new ChessBoard.Position(move.substring(2, 4)));
+        }
+        return game;
+    }
+}
@@ -0,0 +1,72 @@
+package chess.benchmark;
+
+import chess.Bitboard;
+import chess.ChessBoard;
+import chess.ChessPiece;
+import chess.MoveList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// move generation and legality checks on each position, the ways the UI, perft and the searcher ask for them
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Thread)
+public class MoveGenerationBenchmark {
+    @Param({"opening", "italian", "middlegame", "closed", "endgame", "rookEnding"})
+    private String position;
+
+    private final ChessBoard board = new ChessBoard();
+    private final MoveList moves = new MoveList();
+
+    @Setup
+    public void setup() {
+        board.loadFen(Positions.fen(position));
+    }
+
+    // every piece of the side to move lists its moves, the way the UI asks
+    @Benchmark
+    public void pieceLegalMoves(Blackhole bh) {
+        for (long bits = board.getPieces(board.isWhiteToMove()); bits != 0; bits = Bitboard.clearFirst(bits)) {
+            bh.consume(board.getPiece(Bitboard.first(bits)).getLegalMoves());
+        }
+    }
+
+    // every piece of the side to move against every square
+    @Benchmark
+    public void pieceIsLegalMove(Blackhole bh) {
+        for (long bits = board.getPieces(board.isWhiteToMove()); bits != 0; bits = Bitboard.clearFirst(bits)) {
+            ChessPiece p = board.getPiece(Bitboard.first(bits));
+            for (int sq = 0; sq < 64; sq++) bh.consume(p.isLegalMove(ChessBoard.Position.of(sq)));
+        }
+    }
+
+    @Benchmark
+    public int generateMoves() {
+        return board.generateMoves(moves);
+    }
+
+    @Benchmark
+    public ChessBoard newInstance() {
+        return ChessBoard.newInstance(board);
+    }
+
+    @Benchmark
+    public long perft3() {
+        return board.perft(3);
+    }
+}
@@ -0,0 +1,24 @@
+package chess.benchmark;
+
+/*
+ * The positions the benchmarks run on, by the name used for their
+ * position parameter: opening, middlegame and endgame positions, and two
+ * with the side to move in check, one of them mated.
+ */
+final class Positions {
+    private Positions() {}
+
+    static String fen(String name) {
+        return switch (name) {
+            case "opening" -> "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+            case "italian" -> "r1bqk1nr/pppp1ppp/2n5/2b1p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4";
+            case "middlegame" -> "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+            case "closed" -> "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+            case "endgame" -> "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+            case "rookEnding" -> "8/8/4k3/3r4/8/2K5/3R4/8 b - - 0 1";
+            case "check" -> "rnbqkbnr/ppp2ppp/3p4/1B2p3/4P3/8/PPPP1PPP/RNBQK1NR b KQkq - 1 3";
+            case "mate" -> "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3";
+            default -> throw new IllegalArgumentException("Unknown position: " + name);
+        };
+    }
+}
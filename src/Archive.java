@@ -0,0 +1,64 @@
+import chess.ChessBoard;
+import chess.Fen;
+import chess.archive.GameArchive;
+import chess.archive.GameArchiveWriter;
+import chess.archive.PositionIndex;
+import chess.archive.PositionIndexBuilder;
+import chess.pgn.PgnGame;
+import chess.pgn.PgnReader;
+
+import java.nio.file.Path;
+
+/*
+ * Converts PGN to a game archive, replays every game of an archive,
+ * indexes its positions, or looks a position up in such an index.
+ *
+ *   java Archive <in.pgn> <out.jcga>
+ *   java Archive <file.jcga>
+ *   java Archive <file.jcga> <out.jcpi>
+ *   java Archive <file.jcpi> <fen>
+ *
+ * Games with an illegal move are left out of the archive and counted.
+ */
+public class Archive {
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0 || args.length > 2) {
+            System.err.println("usage: Archive <in.pgn> <out.jcga> | <file.jcga> [out.jcpi] | <file.jcpi> <fen>");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+
+        if (args.length == 2 && args[0].endsWith(".jcpi")) {
+            PositionIndex index = new PositionIndex(Path.of(args[0]));
+            ChessBoard board = new ChessBoard();
+            Fen.load(board, args[1]);
+            System.out.println(index.stats(board));
+            index.postings(board).stream().limit(20).forEach(System.out::println);
+        } else if (args.length == 2 && args[0].endsWith(".jcga")) {
+            GameArchive archive = new GameArchive(Path.of(args[0]));
+            Path out = Path.of(args[1]);
+            new PositionIndexBuilder(out.toAbsolutePath().getParent()).build(archive, out);
+            System.out.printf("%,d positions indexed%n", new PositionIndex(out).size());
+        } else if (args.length == 2) {
+            int skipped = 0;
+            try (PgnReader reader = new PgnReader(Path.of(args[0]));
+                 GameArchiveWriter writer = new GameArchiveWriter(Path.of(args[1]))) {
+                for (PgnGame game; (game = reader.next()) != null; ) {
+                    try {
+                        writer.add(game);
+                    } catch (IllegalArgumentException e) {
+                        skipped++;
+                    }
+                }
+                System.out.printf("%,d games written, %,d skipped%n", writer.size(), skipped);
+            }
+        } else {
+            GameArchive archive = new GameArchive(Path.of(args[0]));
+            ChessBoard board = new ChessBoard();
+            long plies = 0;
+            for (int i = 0; i < archive.size(); i++) plies += archive.replay(i, board).length;
+            System.out.printf("%,d games, %,d plies replayed%n", archive.size(), plies);
+        }
+        System.out.printf("%.3f s%n", (System.nanoTime() - start) / 1e9);
+    }
+}
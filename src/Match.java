@@ -0,0 +1,87 @@
+import chess.book.PolyglotBook;
+import chess.engine.Tournament;
+import chess.pgn.PgnWriter;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Plays UCI engines against each other and prints the scores.
+ *
+ *   java Match --engine <path> --engine <path> [--engine <path> ...]
+ *              [--concurrency n] [--rounds n] [--openings <file.pgn|file.epd>]
+ *              [--tc <base+inc seconds> | --movetime <ms>] [--pgn <out.pgn>]
+ *              [--sprt <elo0> <elo1> [alpha beta]] [--book <file.bin>]
+ *
+ * Concurrency defaults to the core count, the time control to 100 ms a
+ * move. With --sprt a match of two engines stops once a bound is crossed.
+ * A Polyglot book plays the moves after the opening while it has any.
+ */
+public class Match {
+    public static void main(String[] args) throws Exception {
+        List<String> engines = new ArrayList<>();
+        int concurrency = Runtime.getRuntime().availableProcessors();
+        int rounds = 1;
+        Path openings = null;
+        Path pgn = null;
+        Path book = null;
+        Tournament.TimeControl tc = Tournament.TimeControl.movetime(100);
+        double[] sprt = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--engine" -> engines.add(args[++i]);
+                case "--concurrency" -> concurrency = Integer.parseInt(args[++i]);
+                case "--rounds" -> rounds = Integer.parseInt(args[++i]);
+                case "--openings" -> openings = Path.of(args[++i]);
+                case "--pgn" -> pgn = Path.of(args[++i]);
+                case "--book" -> book = Path.of(args[++i]);
+                case "--tc" -> tc = Tournament.TimeControl.parse(args[++i]);
+                case "--movetime" -> tc = Tournament.TimeControl.movetime(Long.parseLong(args[++i]));
+                case "--sprt" -> {
+                    sprt = new double[] {Double.parseDouble(args[++i]), Double.parseDouble(args[++i]), 0.05, 0.05};
+                    if (i + 2 < args.length && !args[i + 1].startsWith("--")) {
+                        sprt[2] = Double.parseDouble(args[++i]);
+                        sprt[3] = Double.parseDouble(args[++i]);
+                    }
+                }
+                default -> usage();
+            }
+        }
+        if (engines.size() < 2) usage();
+
+        Tournament tournament = new Tournament(engines, concurrency);
+        tournament.setRounds(rounds);
+        tournament.setTimeControl(tc);
+        if (openings != null) tournament.setOpenings(Tournament.loadOpenings(openings));
+        if (book != null) tournament.setBook(new PolyglotBook(book));
+        if (sprt != null) tournament.setSprt(sprt[0], sprt[1], sprt[2], sprt[3]);
+
+        double[] bounds = sprt;
+        tournament.setListener((game, score) -> {
+            System.out.println(game + "  " + game.getTag("Termination") + "  |  " + score);
+            if (bounds != null) System.out.printf("  LLR %.2f%n", score.llr(bounds[0], bounds[1]));
+        });
+
+        try (PgnWriter writer = pgn == null ? null : new PgnWriter(pgn)) {
+            tournament.setPgnWriter(writer);
+            long start = System.nanoTime();
+            List<Tournament.Score> scores = tournament.run();
+
+            System.out.println();
+            for (Tournament.Score score : scores) {
+                System.out.println(score);
+                if (bounds != null) System.out.println("SPRT: " + score.sprt(bounds[0], bounds[1], bounds[2], bounds[3]));
+            }
+            System.out.printf("%.1f s%n", (System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    private static void usage() {
+        System.err.println("usage: Match --engine <path> --engine <path> [--concurrency n] [--rounds n]"
+                + " [--openings file] [--tc base+inc | --movetime ms] [--pgn out.pgn] [--sprt elo0 elo1 [alpha beta]]"
+                + " [--book file.bin]");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,162 @@
+import chess.ChessBoard;
+import chess.ParallelPerft;
+import chess.TranspositionTable;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/*
+ * Command line perft runner.
+ *
+ *   java Perft <depth> [fen]                  count leaf nodes
+ *   java Perft --threads <n> <depth> [fen]    count on n threads
+ *   java Perft --hash <mb> <depth> [fen]      count on all cores, caching subtrees in an mb sized table
+ *   java Perft --scaling <depth> [fen]        time 1, 2, 4 ... threads up to the core count
+ *   java Perft --divide <depth> [fen]         node count for each root move
+ *   java Perft --suite [max depth]            check the reference positions
+ *
+ * The position defaults to the start position.
+ */
+public class Perft {
+    private static final String STARTPOS = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    // reference positions and their node counts by depth, from the chess programming wiki
+    private static final Object[][] SUITE = {
+            { STARTPOS,
+                    new long[] { 20, 400, 8902, 197281, 4865609, 119060324 } },
+            { "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                    new long[] { 48, 2039, 97862, 4085603, 193690690 } },
+            { "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                    new long[] { 14, 191, 2812, 43238, 674624, 11030083 } },
+            { "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                    new long[] { 6, 264, 9467, 422333, 15833292 } },
+            { "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                    new long[] { 44, 1486, 62379, 2103487, 89941194 } },
+            { "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                    new long[] { 46, 2079, 89890, 3894594, 164075551 } },
+    };
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("usage: Perft [--threads <n> | --hash <mb>] <depth> [fen] | --scaling <depth> [fen]"
+                    + " | --divide <depth> [fen] | --suite [max depth]");
+            System.exit(2);
+        }
+
+        switch (args[0]) {
+            case "--suite" -> System.exit(suite(args.length > 1 ? Integer.parseInt(args[1]) : 5) ? 0 : 1);
+            case "--divide" -> divide(Integer.parseInt(args[1]), fen(args, 2));
+            case "--threads" -> count(Integer.parseInt(args[1]), Integer.parseInt(args[2]), fen(args, 3));
+            case "--hash" -> hashed(Integer.parseInt(args[1]), Integer.parseInt(args[2]), fen(args, 3));
+            case "--scaling" -> scaling(Integer.parseInt(args[1]), fen(args, 2));
+            default -> count(Integer.parseInt(args[0]), fen(args, 1));
+        }
+    }
+
+    private static void count(int depth, String fen) {
+        ChessBoard board = board(fen);
+
+        long start = System.nanoTime();
+        long nodes = board.perft(depth);
+        report(depth, nodes, System.nanoTime() - start);
+    }
+
+    private static void count(int threads, int depth, String fen) {
+        ChessBoard board = board(fen);
+
+        try (ParallelPerft perft = new ParallelPerft(threads)) {
+            long start = System.nanoTime();
+            long nodes = perft.perft(board, depth);
+            report(depth, nodes, System.nanoTime() - start);
+        }
+    }
+
+    private static void hashed(int megabytes, int depth, String fen) {
+        ChessBoard board = board(fen);
+
+        try (ParallelPerft perft = new ParallelPerft(Runtime.getRuntime().availableProcessors())) {
+            perft.setTable(new TranspositionTable(megabytes));
+            long start = System.nanoTime();
+            long nodes = perft.perft(board, depth);
+            report(depth, nodes, System.nanoTime() - start);
+        }
+    }
+
+    private static void scaling(int depth, String fen) {
+        ChessBoard board = board(fen);
+        int cores = Runtime.getRuntime().availableProcessors();
+        long single = 0;
+
+        for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+            try (ParallelPerft perft = new ParallelPerft(threads)) {
+                long start = System.nanoTime();
+                long nodes = perft.perft(board, depth);
+                long elapsed = System.nanoTime() - start;
+
+                if (threads == 1) single = elapsed;
+                System.out.printf("threads %3d  nodes %d  time %8.3f s  nps %,15d  speedup %5.2fx%n",
+                        threads, nodes, elapsed / 1e9, nps(nodes, elapsed), (double) single / elapsed);
+            }
+            if (threads == cores) break;
+        }
+    }
+
+    private static void divide(int depth, String fen) {
+        ChessBoard board = board(fen);
+
+        long start = System.nanoTime();
+        Map<String, Long> moves = board.divide(depth);
+        long elapsed = System.nanoTime() - start;
+
+        long nodes = 0;
+        for (Map.Entry<String, Long> e : moves.entrySet()) {
+            System.out.println(e.getKey() + ": " + e.getValue());
+            nodes += e.getValue();
+        }
+        System.out.println();
+        System.out.println("moves " + moves.size());
+        report(depth, nodes, elapsed);
+    }
+
+    private static boolean suite(int maxDepth) {
+        boolean passed = true;
+
+        for (Object[] entry : SUITE) {
+            String fen = (String) entry[0];
+            long[] expected = (long[]) entry[1];
+            System.out.println(fen);
+
+            for (int depth = 1; depth <= Math.min(maxDepth, expected.length); depth++) {
+                long start = System.nanoTime();
+                long nodes = board(fen).perft(depth);
+                long elapsed = System.nanoTime() - start;
+
+                boolean ok = nodes == expected[depth - 1];
+                passed &= ok;
+                System.out.printf("  depth %d  %12d  %s  %8.3f s  %,14d nps%n", depth, nodes,
+                        ok ? "ok  " : "FAIL (expected " + expected[depth - 1] + ")",
+                        elapsed / 1e9, nps(nodes, elapsed));
+            }
+        }
+        System.out.println(passed ? "all positions passed" : "FAILED");
+        return passed;
+    }
+
+    private static void report(int depth, long nodes, long elapsed) {
+        System.out.printf("depth %d  nodes %d  time %.3f s  nps %,d%n", depth, nodes, elapsed / 1e9, nps(nodes, elapsed));
+    }
+
+    private static long nps(long nodes, long elapsedNanos) {
+        return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+    }
+
+    private static String fen(String[] args, int from) {
+        return args.length > from ? String.join(" ", Arrays.copyOfRange(args, from, args.length)) : STARTPOS;
+    }
+
+    private static ChessBoard board(String fen) {
+        ChessBoard board = new ChessBoard();
+        board.loadFen(fen);
+        return board;
+    }
+}
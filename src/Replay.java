@@ -0,0 +1,31 @@
+import chess.pgn.PgnReader;
+import chess.pgn.ReplayPipeline;
+
+import java.nio.file.Path;
+
+/*
+ * Replays every game of a PGN file and prints the totals.
+ *
+ *   java Replay <file.pgn> [threads]
+ *
+ * Threads default to the core count.
+ */
+public class Replay {
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("usage: Replay <file.pgn> [threads]");
+            System.exit(2);
+        }
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        try (PgnReader reader = new PgnReader(Path.of(args[0]))) {
+            ReplayPipeline.Stats stats = new ReplayPipeline(threads).run(reader);
+
+            System.out.println(stats);
+            System.out.printf("%,d games/s  %,d plies/s%n",
+                    stats.getGames() * 1000 / Math.max(1, stats.getMillis()),
+                    stats.getPlies() * 1000 / Math.max(1, stats.getMillis()));
+            stats.getErrorSamples().forEach(System.out::println);
+        }
+    }
+}
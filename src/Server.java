@@ -0,0 +1,30 @@
+import chess.server.GameServer;
+
+/*
+ * Runs the headless game server until the process is killed.
+ *
+ *   java Server [port] [--engine <path>] [--engines n]
+ *
+ * The port defaults to 8080. Engine replies come from n processes of the
+ * given UCI engine, or n built-in searchers without one; n defaults to
+ * the core count.
+ */
+public class Server {
+    public static void main(String[] args) throws Exception {
+        int port = 8080;
+        String engine = null;
+        int engines = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--engine" -> engine = args[++i];
+                case "--engines" -> engines = Integer.parseInt(args[++i]);
+                default -> port = Integer.parseInt(args[i]);
+            }
+        }
+
+        GameServer server = new GameServer(port, engine, engines);
+        server.start();
+        System.out.println("Serving games on port " + server.getPort());
+    }
+}
@@ -0,0 +1,107 @@
+package chess;
+
+/*
+ * Helpers for 64-bit square sets.
+ *
+ * Squares are numbered the same way the board array is indexed:
+ * square = row * 8 + col, so a8 is 0 and h1 is 63.
+ */
+public final class Bitboard {
+    public static final long EMPTY = 0L;
+    public static final int NO_SQUARE = -1;
+    // a8 is a light square, so are all squares with an even row + col
+    public static final long LIGHT_SQUARES = 0xAA55AA55AA55AA55L;
+
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    static {
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                int dRow = Integer.compare(row(to), row(from));
+                int dCol = Integer.compare(col(to), col(from));
+                int rowOff = Math.abs(row(to) - row(from));
+                int colOff = Math.abs(col(to) - col(from));
+
+                // only squares on a shared line or diagonal have anything in between
+                if (from == to || (rowOff != 0 && colOff != 0 && rowOff != colOff)) continue;
+
+                long mask = EMPTY;
+                int r = row(from) + dRow;
+                int c = col(from) + dCol;
+                while (r != row(to) || c != col(to)) {
+                    mask |= bit(r, c);
+                    r += dRow;
+                    c += dCol;
+                }
+                BETWEEN[from][to] = mask;
+
+                // extend both ways to the edge of the board for the full line
+                long line = bit(from);
+                for (int sign = -1; sign <= 1; sign += 2) {
+                    r = row(from) + sign * dRow;
+                    c = col(from) + sign * dCol;
+                    while (r >= 0 && r < 8 && c >= 0 && c < 8) {
+                        line |= bit(r, c);
+                        r += sign * dRow;
+                        c += sign * dCol;
+                    }
+                }
+                LINE[from][to] = line;
+            }
+        }
+    }
+
+    private Bitboard() {}
+
+    public static int square(int row, int col) {
+        return (row << 3) | col;
+    }
+
+    public static int square(ChessBoard.Position position) {
+        return square(position.row(), position.col());
+    }
+
+    public static int row(int square) {
+        return square >>> 3;
+    }
+
+    public static int col(int square) {
+        return square & 7;
+    }
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    public static long bit(int row, int col) {
+        return 1L << square(row, col);
+    }
+
+    public static boolean contains(long bitboard, int square) {
+        return (bitboard & bit(square)) != 0;
+    }
+
+    // index of the lowest set square, callers must check for EMPTY first
+    public static int first(long bitboard) {
+        return Long.numberOfTrailingZeros(bitboard);
+    }
+
+    public static long clearFirst(long bitboard) {
+        return bitboard & (bitboard - 1);
+    }
+
+    public static int count(long bitboard) {
+        return Long.bitCount(bitboard);
+    }
+
+    // squares strictly between two squares on the same line or diagonal, otherwise EMPTY
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    // the whole line or diagonal through two squares, edge to edge, otherwise EMPTY
+    public static long line(int a, int b) {
+        return LINE[a][b];
+    }
+}
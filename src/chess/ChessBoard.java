@@ -2,19 +2,81 @@ package chess;
 
 import chess.pieces.*;
 
-import java.util.Objects;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.stream.Stream;
 
 public class ChessBoard {
     private final ChessPiece[][] board;
 
-    private Position[] enPassantSquare;
+    /*
+     * Bitboards kept in sync with `board`, one per piece type and color
+     * (indexed by pieceIndex()) plus occupancy masks, so square queries
+     * do not have to chase piece references.
+     */
+    private final long[] pieceBitboards = new long[2 * ChessConstants.PIECE_TYPES];
+    private long whitePieces;
+    private long blackPieces;
+    private long occupied;
+
+    private int enPassantSquare = Bitboard.NO_SQUARE;
+    private int castlingRights;
+    private boolean whiteToMove = true;
+
+    // Zobrist key of the position, updated with every change (see Zobrist)
+    private long hash;
+
+    // plies since the last capture or pawn move and the number of the current move, as in FEN
+    private int halfmoveClock;
+    private int fullmoveNumber = 1;
 
     private ChessBoard.Position bKingPosition;
     private ChessBoard.Position wKingPosition;
 
-    private boolean cloned = false;
+    /*
+     * Legal moves of the side to move and the targets of each of its
+     * pieces, generated on first request and kept until the position
+     * changes. Every change goes through setBits/clearBits or one of the
+     * state updates, which drop them.
+     */
+    private final MoveList legalMoves = new MoveList();
+    private final long[] legalTargetsFrom = new long[64];
+    private boolean legalMovesValid;
+
+    // the back ranks, where a pawn move is a promotion
+    private static final long PROMOTION_ROWS = 0xFF000000000000FFL;
+
+    /*
+     * Undo stack for makeMove/unmakeMove. Each ply records the move, the
+     * moved and captured pieces and the state the move overwrites, so
+     * search can walk the tree on one board without allocating copies.
+     */
+    private static final int UNDO_CAPACITY = 256;
+    private int[] undoMove = new int[UNDO_CAPACITY];
+    private ChessPiece[] undoMoved = new ChessPiece[UNDO_CAPACITY];
+    private ChessPiece[] undoCaptured = new ChessPiece[UNDO_CAPACITY];
+    private int[] undoEnPassant = new int[UNDO_CAPACITY];
+    private int[] undoCastling = new int[UNDO_CAPACITY];
+    private int[] undoHalfmove = new int[UNDO_CAPACITY];
+    private Position[] undoWKing = new Position[UNDO_CAPACITY];
+    private Position[] undoBKing = new Position[UNDO_CAPACITY];
+    private int undoSize;
+
+    // rights kept when a piece moves from or to a square, only king and rook homes clear any
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASK, ChessConstants.ALL_CASTLING);
+        CASTLING_MASK[Bitboard.square(ChessConstants.WHITE_HOME_RANK, 4)] &=
+                ~(ChessConstants.WHITE_KINGSIDE | ChessConstants.WHITE_QUEENSIDE);
+        CASTLING_MASK[Bitboard.square(ChessConstants.WHITE_HOME_RANK, 7)] &= ~ChessConstants.WHITE_KINGSIDE;
+        CASTLING_MASK[Bitboard.square(ChessConstants.WHITE_HOME_RANK, 0)] &= ~ChessConstants.WHITE_QUEENSIDE;
+        CASTLING_MASK[Bitboard.square(ChessConstants.BLACK_HOME_RANK, 4)] &=
+                ~(ChessConstants.BLACK_KINGSIDE | ChessConstants.BLACK_QUEENSIDE);
+        CASTLING_MASK[Bitboard.square(ChessConstants.BLACK_HOME_RANK, 7)] &= ~ChessConstants.BLACK_KINGSIDE;
+        CASTLING_MASK[Bitboard.square(ChessConstants.BLACK_HOME_RANK, 0)] &= ~ChessConstants.BLACK_QUEENSIDE;
+    }
 
     public ChessBoard() {
         this.board = new ChessPiece[ChessConstants.MAX_ROW][ChessConstants.MAX_COL];
@@ -26,64 +88,161 @@ public class ChessBoard {
         this.board = board;
         this.bKingPosition = bKing;
         this.wKingPosition = wKing;
-        this.cloned = true;
+
+        for (int row = 0; row < ChessConstants.MAX_ROW; row++) {
+            for (int col = 0; col < ChessConstants.MAX_COL; col++) {
+                if (board[row][col] != null) setBits(board[row][col], Bitboard.square(row, col));
+            }
+        }
     }
 
     public static ChessBoard newInstance(ChessBoard _board) {
         ChessBoard ret = new ChessBoard(
                 new ChessPiece[8][8], _board.bKingPosition, _board.wKingPosition);
 
-        ChessBoard.stream(_board).forEach(piece -> {
-            switch (piece) {
-                case King k: ret.addPiece(new King(k.getRow(), k.getCol(), k.isWhite(), ret));
-                    break;
-                case Queen q: ret.addPiece(new Queen(q.getRow(), q.getCol(), q.isWhite(), ret));
-                    break;
-                case Rook r: ret.addPiece(new Rook(r.getRow(), r.getCol(), r.isWhite(), ret));
-                    break;
-                case Bishop b: ret.addPiece(new Bishop(b.getRow(), b.getCol(), b.isWhite(), ret));
-                    break;
-                case Knight k: ret.addPiece(new Knight(k.getRow(), k.getCol(), k.isWhite(), ret));
-                    break;
-                case Pawn p: ret.addPiece(new Pawn(p.getRow(), p.getCol(), p.isWhite(), ret));
-                    break;
-                default:
-            }
-        });
+        ChessBoard.stream(_board).forEach(piece -> ret.addPiece(
+                createPiece(piece.getType(), piece.isWhite(), piece.getRow(), piece.getCol(), ret)));
+
+        ret.enPassantSquare = _board.enPassantSquare;
+        ret.castlingRights = _board.castlingRights;
+        ret.whiteToMove = _board.whiteToMove;
+        ret.hash = _board.hash;
+        ret.halfmoveClock = _board.halfmoveClock;
+        ret.fullmoveNumber = _board.fullmoveNumber;
         return ret;
     }
 
+    public static ChessPiece createPiece(int type, boolean white, int row, int col, ChessBoard board) {
+        return switch (type) {
+            case ChessConstants.PAWN -> new Pawn(row, col, white, board);
+            case ChessConstants.KNIGHT -> new Knight(row, col, white, board);
+            case ChessConstants.BISHOP -> new Bishop(row, col, white, board);
+            case ChessConstants.ROOK -> new Rook(row, col, white, board);
+            case ChessConstants.QUEEN -> new Queen(row, col, white, board);
+            case ChessConstants.KING -> new King(row, col, white, board);
+            default -> throw new IllegalArgumentException("Invalid piece type: " + type);
+        };
+    }
+
+    // replaces the whole position with the one described by a FEN string
+    public void loadFen(String fen) {
+        Fen.load(this, fen);
+    }
+
     public Position getKingPosition(boolean white) {
         return white ? wKingPosition : bKingPosition;
     }
 
-    public boolean isCloned() {
-        return cloned;
+    public boolean isWhiteToMove() {
+        return whiteToMove;
+    }
+
+    public void setWhiteToMove(boolean whiteToMove) {
+        if (this.whiteToMove != whiteToMove) switchSide();
+    }
+
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    public void setCastlingRights(int castlingRights) {
+        updateCastling(castlingRights);
+    }
+
+    // `enPassantSquare` is the square a pawn just skipped over, or null to clear it
+    public void setEnPassantSquare(Position enPassantSquare) {
+        updateEnPassant(enPassantSquare == null ? Bitboard.NO_SQUARE : Bitboard.square(enPassantSquare));
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    /*
+     * The hash with the en passant square counted only if a pawn can take
+     * on it, so positions that differ in nothing else are the same position,
+     * as repetition and transpositions need. The board keeps one after
+     * every double push, and 1. e4 would otherwise never match the same
+     * position reached another way.
+     */
+    public long getPositionKey() {
+        if (enPassantSquare == Bitboard.NO_SQUARE) return hash;
+
+        // the squares a pawn of the side to move could take from are those an enemy pawn on the square attacks
+        if ((Attacks.pawn(!whiteToMove, enPassantSquare) & getPieces(whiteToMove, ChessConstants.PAWN)) != Bitboard.EMPTY) {
+            return hash;
+        }
+        return hash ^ Zobrist.enPassant(enPassantSquare);
+    }
+
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    void setClocks(int halfmoveClock, int fullmoveNumber) {
+        this.halfmoveClock = halfmoveClock;
+        this.fullmoveNumber = fullmoveNumber;
     }
 
-    public void setEnPassantSquare(Position[] enPassantSquare) {
-        this.enPassantSquare = enPassantSquare;
+    // advances the clocks for a move played outside makeMove, once the side to move has switched
+    void tickClocks(boolean captureOrPawnMove) {
+        halfmoveClock = captureOrPawnMove ? 0 : halfmoveClock + 1;
+        if (whiteToMove) fullmoveNumber++;
+    }
+
+    // builds the key from scratch, the incrementally kept one must always match it
+    public long computeHash() {
+        long key = Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantSquare);
+
+        if (!whiteToMove) key ^= Zobrist.blackToMove();
+        for (long bb = occupied; bb != Bitboard.EMPTY; bb = Bitboard.clearFirst(bb)) {
+            int square = Bitboard.first(bb);
+            ChessPiece p = getPiece(square);
+            key ^= Zobrist.piece(p.isWhite(), p.getType(), square);
+        }
+        return key;
     }
 
     public boolean hasEnPassantSquare() {
-        return enPassantSquare != null;
+        return enPassantSquare != Bitboard.NO_SQUARE;
     }
 
     public Position getEnPassantSquare() {
-        return enPassantSquare[0];
+        return Position.of(enPassantSquare);
     }
 
+    // the pawn that can be taken en passant sits one row past the skipped square
     public Position getEnPassantPiece() {
-        return enPassantSquare[1];
+        return Position.of(enPassantPieceSquare());
+    }
+
+    private int enPassantPieceSquare() {
+        return Bitboard.row(enPassantSquare) < 4 ? enPassantSquare + 8 : enPassantSquare - 8;
     }
 
     public record Position(int row, int col) {
+        private static final Position[] SQUARES = new Position[64];
+
+        static {
+            for (int square = 0; square < 64; square++) {
+                SQUARES[square] = new Position(Bitboard.row(square), Bitboard.col(square));
+            }
+        }
+
+        // shared instance for a square index, avoids allocating in move generation
+        public static Position of(int square) {
+            return SQUARES[square];
+        }
 
         @Override
         public String toString() {
             int rank = 8 - row;
             char file = (char) ('a' + col);
-            return String.format("%c%d", file, rank);
+            return new String(new char[] { file, (char) ('0' + rank) });
         }
 
         public Position(String notation) {
@@ -135,36 +294,529 @@ public class ChessBoard {
         return board[row][col];
     }
 
+    public ChessPiece getPiece(int square) {
+        return board[Bitboard.row(square)][Bitboard.col(square)];
+    }
+
     public ChessPiece getPiece(Position position) {
         return board[position.row()][position.col()];
     }
 
-    public void movePiece(Position start, Position end) {
-        board[end.row()][end.col()] = board[start.row()][start.col()];
-        board[start.row()][start.col()] = null;
-        getPiece(end).setPosition(end);
+    public long getPieces(boolean white, int type) {
+        return pieceBitboards[pieceIndex(white, type)];
+    }
 
-        if (bKingPosition.equals(start)) {
-            bKingPosition = end;
-        } else if (wKingPosition.equals(start)) {
-            wKingPosition = end;
+    public long getPieces(boolean white) {
+        return white ? whitePieces : blackPieces;
+    }
+
+    public long getOccupied() {
+        return occupied;
+    }
+
+    public int getKingSquare(boolean white) {
+        return Bitboard.first(getPieces(white, ChessConstants.KING));
+    }
+
+    /*
+     * Attack queries. Instead of asking every enemy piece for its moves these
+     * look outward from the square with each piece's attack pattern and
+     * intersect with the attacker bitboards.
+     */
+    public long attackersTo(int square, boolean byWhite, long occupied) {
+        long queens = getPieces(byWhite, ChessConstants.QUEEN);
+
+        return (Attacks.pawn(!byWhite, square) & getPieces(byWhite, ChessConstants.PAWN))
+                | (Attacks.knight(square) & getPieces(byWhite, ChessConstants.KNIGHT))
+                | (Attacks.king(square) & getPieces(byWhite, ChessConstants.KING))
+                | (Attacks.bishop(square, occupied) & (getPieces(byWhite, ChessConstants.BISHOP) | queens))
+                | (Attacks.rook(square, occupied) & (getPieces(byWhite, ChessConstants.ROOK) | queens));
+    }
+
+    public boolean isSquareAttacked(int square, boolean byWhite) {
+        return attackersTo(square, byWhite, occupied) != Bitboard.EMPTY;
+    }
+
+    public boolean isSquareAttacked(Position position, boolean byWhite) {
+        return isSquareAttacked(Bitboard.square(position), byWhite);
+    }
+
+    // enemy pieces giving check to the king of the given color
+    public long checkers(boolean white) {
+        return attackersTo(getKingSquare(white), !white, occupied);
+    }
+
+    public boolean isInCheck(boolean white) {
+        return checkers(white) != Bitboard.EMPTY;
+    }
+
+    // pieces of the given color that are the only blocker between their king and an enemy slider
+    public long pinned(boolean white) {
+        int king = getKingSquare(white);
+        long enemy = getPieces(!white);
+        long queens = getPieces(!white, ChessConstants.QUEEN);
+        long snipers = (Attacks.rook(king, enemy) & (getPieces(!white, ChessConstants.ROOK) | queens))
+                | (Attacks.bishop(king, enemy) & (getPieces(!white, ChessConstants.BISHOP) | queens));
+        long pinned = Bitboard.EMPTY;
+
+        for (; snipers != Bitboard.EMPTY; snipers = Bitboard.clearFirst(snipers)) {
+            long blockers = Bitboard.between(king, Bitboard.first(snipers)) & occupied;
+
+            if (Bitboard.count(blockers) == 1) pinned |= blockers & getPieces(white);
+        }
+        return pinned;
+    }
+
+    // squares a piece of the given type and color on `from` could move to, ignoring its king's safety
+    public long pseudoLegalTargets(int type, boolean white, int from) {
+        long own = white ? whitePieces : blackPieces;
+
+        return switch (type) {
+            case ChessConstants.PAWN -> pawnTargets(white, from);
+            case ChessConstants.KNIGHT -> Attacks.knight(from) & ~own;
+            case ChessConstants.BISHOP -> Attacks.bishop(from, occupied) & ~own;
+            case ChessConstants.ROOK -> Attacks.rook(from, occupied) & ~own;
+            case ChessConstants.QUEEN -> Attacks.queen(from, occupied) & ~own;
+            case ChessConstants.KING -> (Attacks.king(from) & ~own) | castlingTargets(white);
+            default -> throw new IllegalArgumentException("Invalid piece type: " + type);
+        };
+    }
+
+    private long pawnTargets(boolean white, int from) {
+        long targets = Attacks.pawn(white, from) & (white ? blackPieces : whitePieces);
+
+        // the en passant square belongs to the side to move, the other side's pawns cannot take there
+        if (enPassantSquare != Bitboard.NO_SQUARE && white == whiteToMove) {
+            targets |= Attacks.pawn(white, from) & Bitboard.bit(enPassantSquare);
+        }
+
+        // single move, and two squares from the starting rank if both are empty
+        int step = white ? -8 : 8;
+        int to = from + step;
+        if (to >= 0 && to < 64 && !Bitboard.contains(occupied, to)) {
+            targets |= Bitboard.bit(to);
+
+            int startRank = white ? ChessConstants.WHITE_PAWN_RANK : ChessConstants.BLACK_PAWN_RANK;
+            if (Bitboard.row(from) == startRank && !Bitboard.contains(occupied, to + step)) {
+                targets |= Bitboard.bit(to + step);
+            }
         }
+        return targets;
+    }
+
+    // legal targets of the side to move's piece on `square`, from the cached generation
+    public long legalTargets(int square) {
+        legalMoves();
+        return legalTargetsFrom[square];
+    }
+
+    public long legalTargets(ChessPiece piece, long targets) {
+        boolean white = piece.isWhite();
+
+        if (piece.getType() == ChessConstants.KING) {
+            return legalTargets(ChessConstants.KING, white, piece.getSquare(), targets, Bitboard.EMPTY, Bitboard.EMPTY);
+        }
+        return legalTargets(piece.getType(), white, piece.getSquare(), targets, checkers(white), pinned(white));
+    }
+
+    /*
+     * Reduces the squares a piece could reach to the ones that do not leave
+     * its own king in check: the king may not step onto an attacked square,
+     * a check must be captured or blocked (only the king moves in double
+     * check), and a pinned piece stays on the line through its king.
+     * `checkers` and `pinned` are passed in so a full generation finds them once.
+     */
+    private long legalTargets(int type, boolean white, int from, long targets, long checkers, long pinned) {
+        if (type == ChessConstants.KING) {
+            // the king no longer blocks rays aimed through its old square
+            long occ = occupied & ~Bitboard.bit(from);
+            long legal = Bitboard.EMPTY;
+
+            for (long bb = targets; bb != Bitboard.EMPTY; bb = Bitboard.clearFirst(bb)) {
+                int to = Bitboard.first(bb);
+                if (attackersTo(to, !white, occ) == Bitboard.EMPTY) legal |= Bitboard.bit(to);
+            }
+            return legal;
+        }
+
+        int king = getKingSquare(white);
+        long legal = Bitboard.EMPTY;
+
+        // en passant removes two pieces from one rank, easiest to play it out on the occupancy
+        if (type == ChessConstants.PAWN && enPassantSquare != Bitboard.NO_SQUARE) {
+            int to = enPassantSquare;
+
+            if (Bitboard.contains(targets, to)) {
+                long captured = Bitboard.bit(enPassantPieceSquare());
+                long occ = (occupied ^ Bitboard.bit(from) ^ captured) | Bitboard.bit(to);
+
+                if ((attackersTo(king, !white, occ) & ~captured) == Bitboard.EMPTY) legal |= Bitboard.bit(to);
+                targets &= ~Bitboard.bit(to);
+            }
+        }
+
+        if (checkers != Bitboard.EMPTY) {
+            if (Bitboard.count(checkers) > 1) return legal;
+            targets &= checkers | Bitboard.between(king, Bitboard.first(checkers));
+        }
+        if (Bitboard.contains(pinned, from)) {
+            targets &= Bitboard.line(king, from);
+        }
+        return legal | targets;
+    }
+
+    /*
+     * Fills `moves` with every legal move for the side to move and returns
+     * how many there are. Works on the bitboards only, no pieces or
+     * positions are touched and nothing is allocated.
+     */
+    public int generateMoves(MoveList moves) {
+        return generateMoves(moves, null, ~Bitboard.EMPTY, ~Bitboard.EMPTY);
+    }
+
+    /*
+     * Like generateMoves, but only captures, en passant included, and
+     * promotions: the moves a quiescence search looks at. Quiet moves are
+     * never added to the list.
+     */
+    public int generateCaptures(MoveList moves) {
+        boolean white = whiteToMove;
+        long enemies = getPieces(!white);
+        long pawnTargets = enemies | PROMOTION_ROWS
+                | (enPassantSquare == Bitboard.NO_SQUARE ? Bitboard.EMPTY : Bitboard.bit(enPassantSquare));
+        return generateMoves(moves, null, enemies, pawnTargets);
+    }
+
+    /*
+     * All legal moves of the side to move, generated once per position.
+     * The list is shared, callers must not change it.
+     */
+    public MoveList legalMoves() {
+        if (!legalMovesValid) {
+            Arrays.fill(legalTargetsFrom, Bitboard.EMPTY);
+            generateMoves(legalMoves, legalTargetsFrom, ~Bitboard.EMPTY, ~Bitboard.EMPTY);
+            legalMovesValid = true;
+        }
+        return legalMoves;
+    }
+
+    /*
+     * `targetsFrom`, if given, receives the legal targets of each piece by
+     * square. Only targets in `mask`, or in `pawnMask` for pawns, are added.
+     */
+    private int generateMoves(MoveList moves, long[] targetsFrom, long mask, long pawnMask) {
+        boolean white = whiteToMove;
+        long checkers = checkers(white);
+        long pinned = pinned(white);
+        // in double check only king moves can be legal
+        int firstType = Bitboard.count(checkers) > 1 ? ChessConstants.KING : ChessConstants.PAWN;
+
+        moves.clear();
+        for (int type = firstType; type <= ChessConstants.KING; type++) {
+            for (long pieces = getPieces(white, type); pieces != Bitboard.EMPTY; pieces = Bitboard.clearFirst(pieces)) {
+                int from = Bitboard.first(pieces);
+                long targets = legalTargets(type, white, from,
+                        pseudoLegalTargets(type, white, from), checkers, pinned);
+                if (targetsFrom != null) targetsFrom[from] = targets;
+                targets &= type == ChessConstants.PAWN ? pawnMask : mask;
+
+                for (; targets != Bitboard.EMPTY; targets = Bitboard.clearFirst(targets)) {
+                    addMove(moves, type, from, Bitboard.first(targets));
+                }
+            }
+        }
+        return moves.size();
+    }
+
+    /*
+     * Whether the side to move has any legal move, stopping at the first
+     * piece that has one. The king goes first as it is the only piece that
+     * can move in double check, and castling needs no look since it is
+     * only legal when the step towards the rook is.
+     */
+    public boolean hasLegalMove() {
+        if (legalMovesValid) return !legalMoves.isEmpty();
+
+        boolean white = whiteToMove;
+        int king = getKingSquare(white);
+
+        if (legalTargets(ChessConstants.KING, white, king, Attacks.king(king) & ~getPieces(white),
+                Bitboard.EMPTY, Bitboard.EMPTY) != Bitboard.EMPTY) return true;
+
+        long checkers = checkers(white);
+        if (Bitboard.count(checkers) > 1) return false;
+
+        long pinned = pinned(white);
+        for (int type = ChessConstants.PAWN; type < ChessConstants.KING; type++) {
+            for (long pieces = getPieces(white, type); pieces != Bitboard.EMPTY; pieces = Bitboard.clearFirst(pieces)) {
+                int from = Bitboard.first(pieces);
+
+                if (legalTargets(type, white, from, pseudoLegalTargets(type, white, from),
+                        checkers, pinned) != Bitboard.EMPTY) return true;
+            }
+        }
+        return false;
+    }
+
+    private void addMove(MoveList moves, int type, int from, int to) {
+        ChessPiece target = getPiece(to);
+        int captured = target == null ? Move.NO_PIECE : target.getType();
+        int flags = 0;
+
+        if (type == ChessConstants.PAWN) {
+            if (to == enPassantSquare) {
+                captured = ChessConstants.PAWN;
+                flags = Move.EN_PASSANT;
+            } else if (Math.abs(to - from) == 16) {
+                flags = Move.DOUBLE_PUSH;
+            }
+
+            int row = Bitboard.row(to);
+            if (row == ChessConstants.BLACK_HOME_RANK || row == ChessConstants.WHITE_HOME_RANK) {
+                for (int promotion = ChessConstants.QUEEN; promotion >= ChessConstants.KNIGHT; promotion--) {
+                    moves.add(Move.encode(from, to, type, captured, promotion, flags));
+                }
+                return;
+            }
+        } else if (type == ChessConstants.KING && Math.abs(to - from) == 2) {
+            flags = Move.CASTLE;
+        }
+        moves.add(Move.encode(from, to, type, captured, Move.NO_PIECE, flags));
+    }
+
+    /*
+     * Counts the leaf nodes of the legal move tree `depth` plies deep. The
+     * standard yardstick for move generator correctness and speed, the
+     * last ply is counted from the move list without being played.
+     */
+    public long perft(int depth) {
+        if (depth < 1) return 1;
+        return perft(depth, newMoveLists(depth));
+    }
+
+    /*
+     * perft that looks subtrees up in `table` and stores the ones it had
+     * to count. Transpositions are common enough in perft trees that this
+     * pays off from about depth 5, and the table can be shared by threads.
+     */
+    public long perft(int depth, TranspositionTable table) {
+        if (depth < 1) return 1;
+        return perft(depth, newMoveLists(depth), table);
+    }
+
+    // perft split by root move, keyed by the move in coordinate notation
+    public Map<String, Long> divide(int depth) {
+        Map<String, Long> ret = new LinkedHashMap<>();
+        if (depth < 1) return ret;
+
+        MoveList[] lists = newMoveLists(depth);
+        MoveList root = lists[depth];
+        generateMoves(root);
+
+        for (int i = 0; i < root.size(); i++) {
+            int move = root.get(i);
+
+            makeMove(move);
+            ret.put(Move.toUci(move), depth == 1 ? 1 : perft(depth - 1, lists));
+            unmakeMove();
+        }
+        return ret;
+    }
+
+    private long perft(int depth, MoveList[] lists) {
+        MoveList moves = lists[depth];
+        int count = generateMoves(moves);
+        if (depth == 1) return count;
+
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            makeMove(moves.get(i));
+            nodes += perft(depth - 1, lists);
+            unmakeMove();
+        }
+        return nodes;
+    }
+
+    private long perft(int depth, MoveList[] lists, TranspositionTable table) {
+        if (depth == 1) return generateMoves(lists[1]);
+
+        long entry = table.probe(hash);
+        if (entry != TranspositionTable.NO_ENTRY && TranspositionTable.depth(entry) == depth)
+            return TranspositionTable.count(entry);
+
+        MoveList moves = lists[depth];
+        int count = generateMoves(moves);
+
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            makeMove(moves.get(i));
+            nodes += perft(depth - 1, lists, table);
+            unmakeMove();
+        }
+        table.store(hash, table.packCount(nodes, depth));
+        return nodes;
+    }
+
+    private static MoveList[] newMoveLists(int depth) {
+        MoveList[] lists = new MoveList[depth + 1];
+        for (int i = 1; i <= depth; i++) lists[i] = new MoveList();
+        return lists;
+    }
+
+    /*
+     * Castling destinations for the king of the given color. The squares
+     * between king and rook must be empty and the king may not be in check
+     * or pass through an attacked square, legalTargets checks where it lands.
+     */
+    public long castlingTargets(boolean white) {
+        int kingside = white ? ChessConstants.WHITE_KINGSIDE : ChessConstants.BLACK_KINGSIDE;
+        int queenside = white ? ChessConstants.WHITE_QUEENSIDE : ChessConstants.BLACK_QUEENSIDE;
+        if ((castlingRights & (kingside | queenside)) == 0 || isInCheck(white)) return Bitboard.EMPTY;
+
+        int king = Bitboard.square(white ? ChessConstants.WHITE_HOME_RANK : ChessConstants.BLACK_HOME_RANK, 4);
+        long targets = Bitboard.EMPTY;
+
+        if ((castlingRights & kingside) != 0
+                && (Bitboard.between(king, king + 3) & occupied) == Bitboard.EMPTY
+                && !isSquareAttacked(king + 1, !white)) {
+            targets |= Bitboard.bit(king + 2);
+        }
+        if ((castlingRights & queenside) != 0
+                && (Bitboard.between(king, king - 4) & occupied) == Bitboard.EMPTY
+                && !isSquareAttacked(king - 1, !white)) {
+            targets |= Bitboard.bit(king - 2);
+        }
+        return targets;
+    }
+
+    public void movePiece(Position start, Position end) {
+        int from = Bitboard.square(start);
+        int to = Bitboard.square(end);
+
+        if (getPiece(to) != null) removePiece(to);
+        putPiece(removePiece(from), to);
+        updateCastling(castlingRights & CASTLING_MASK[from] & CASTLING_MASK[to]);
     }
 
     public void promotePiece(ChessPiece piece) {
-        board[piece.getRow()][piece.getCol()] = piece;
+        int square = piece.getSquare();
+
+        if (getPiece(square) != null) removePiece(square);
+        putPiece(piece, square);
+    }
+
+    /*
+     * Plays a legal move in place and pushes what is needed to take it back.
+     * Handles captures, en passant, castling (the king moving two squares)
+     * and promotion to `promotion`, a piece type that is ignored unless a
+     * pawn reaches the last rank. Flips the side to move.
+     */
+    public void makeMove(int from, int to, int promotion) {
+        if (undoSize == undoMove.length) growUndoStack();
+        int ply = undoSize++;
+
+        ChessPiece moving = getPiece(from);
+        ChessPiece captured = getPiece(to);
+        int type = moving.getType();
+
+        undoMove[ply] = from | (to << 6);
+        undoMoved[ply] = moving;
+        undoEnPassant[ply] = enPassantSquare;
+        undoCastling[ply] = castlingRights;
+        undoHalfmove[ply] = halfmoveClock;
+        undoWKing[ply] = wKingPosition;
+        undoBKing[ply] = bKingPosition;
+
+        if (type == ChessConstants.PAWN && to == enPassantSquare) {
+            captured = removePiece(enPassantPieceSquare());
+        } else if (captured != null) {
+            removePiece(to);
+        }
+        undoCaptured[ply] = captured;
+
+        removePiece(from);
+        if (type == ChessConstants.PAWN
+                && (Bitboard.row(to) == ChessConstants.BLACK_HOME_RANK || Bitboard.row(to) == ChessConstants.WHITE_HOME_RANK)) {
+            // the only allocation on this path, promotions are rare enough not to pool
+            putPiece(createPiece(promotion, moving.isWhite(), Bitboard.row(to), Bitboard.col(to), this), to);
+        } else {
+            putPiece(moving, to);
+        }
+
+        if (type == ChessConstants.KING && Math.abs(to - from) == 2) {
+            int rookFrom = to > from ? from + 3 : from - 4;
+            putPiece(removePiece(rookFrom), (from + to) / 2);
+        }
+
+        updateEnPassant(type == ChessConstants.PAWN && Math.abs(to - from) == 16
+                ? (from + to) / 2 : Bitboard.NO_SQUARE);
+        updateCastling(castlingRights & CASTLING_MASK[from] & CASTLING_MASK[to]);
+        halfmoveClock = type == ChessConstants.PAWN || captured != null ? 0 : halfmoveClock + 1;
+        if (!whiteToMove) fullmoveNumber++;
+        switchSide();
+    }
+
+    public void makeMove(int move) {
+        makeMove(Move.from(move), Move.to(move), Move.promotion(move));
+    }
+
+    public void unmakeMove() {
+        int ply = --undoSize;
+        int from = undoMove[ply] & 63;
+        int to = undoMove[ply] >>> 6;
+        ChessPiece moving = undoMoved[ply];
+        ChessPiece captured = undoCaptured[ply];
+
+        if (moving.getType() == ChessConstants.KING && Math.abs(to - from) == 2) {
+            int rookFrom = to > from ? from + 3 : from - 4;
+            putPiece(removePiece((from + to) / 2), rookFrom);
+        }
+
+        removePiece(to);
+        putPiece(moving, from);
+        // a captured piece keeps its position while off the board, en passant included
+        if (captured != null) putPiece(captured, captured.getSquare());
+
+        updateEnPassant(undoEnPassant[ply]);
+        updateCastling(undoCastling[ply]);
+        wKingPosition = undoWKing[ply];
+        bKingPosition = undoBKing[ply];
+        halfmoveClock = undoHalfmove[ply];
+        switchSide();
+        if (!whiteToMove) fullmoveNumber--;
+
+        undoMoved[ply] = null;
+        undoCaptured[ply] = null;
+    }
+
+    private void growUndoStack() {
+        int capacity = undoMove.length * 2;
+
+        undoMove = Arrays.copyOf(undoMove, capacity);
+        undoMoved = Arrays.copyOf(undoMoved, capacity);
+        undoCaptured = Arrays.copyOf(undoCaptured, capacity);
+        undoEnPassant = Arrays.copyOf(undoEnPassant, capacity);
+        undoCastling = Arrays.copyOf(undoCastling, capacity);
+        undoHalfmove = Arrays.copyOf(undoHalfmove, capacity);
+        undoWKing = Arrays.copyOf(undoWKing, capacity);
+        undoBKing = Arrays.copyOf(undoBKing, capacity);
     }
 
     public boolean isEmpty(Position position) {
-        return getPiece(position) == null;
+        return isEmpty(position.row(), position.col());
     }
 
     public boolean isEmpty(int row, int col) {
-        return getPiece(row, col) == null;
+        return (occupied & Bitboard.bit(row, col)) == Bitboard.EMPTY;
     }
 
     public static Stream<ChessPiece> stream(ChessBoard board) {
-        return Arrays.stream(board.board).flatMap(Arrays::stream).filter(Objects::nonNull);
+        Stream.Builder<ChessPiece> pieces = Stream.builder();
+
+        for (long bb = board.occupied; bb != Bitboard.EMPTY; bb = Bitboard.clearFirst(bb)) {
+            pieces.add(board.getPiece(Bitboard.first(bb)));
+        }
+        return pieces.build();
     }
 
     public static void startpos(ChessBoard b) {
@@ -172,6 +824,9 @@ public class ChessBoard {
         //// test
         // b.addPiece(new Rook(4, 4, true, b));
 
+        b.clear();
+        b.castlingRights = ChessConstants.ALL_CASTLING;
+
         b.bKingPosition = new Position(0, 4);
         b.wKingPosition = new Position(7, 4);
 
@@ -200,14 +855,93 @@ public class ChessBoard {
                     b.addPiece(new Pawn(ChessConstants.BLACK_PAWN_RANK, col, false, b));
                 } else if (row == ChessConstants.WHITE_PAWN_RANK) {
                     b.addPiece(new Pawn(ChessConstants.WHITE_PAWN_RANK, col, true, b));
-                } else {
-                    b.board[row][col] = null;
                 }
             }
         }
+
+        b.hash = b.computeHash();
+    }
+
+    // empties the board: no pieces, no castling rights or en passant, white to move on move 1
+    void clear() {
+        for (ChessPiece[] row : board) Arrays.fill(row, null);
+        Arrays.fill(pieceBitboards, Bitboard.EMPTY);
+        whitePieces = blackPieces = occupied = Bitboard.EMPTY;
+        enPassantSquare = Bitboard.NO_SQUARE;
+        castlingRights = 0;
+        whiteToMove = true;
+        undoSize = 0;
+        hash = 0L;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        legalMovesValid = false;
     }
 
-    private void addPiece(ChessPiece p) {
+    // places a piece on the square it already holds as its position
+    void addPiece(ChessPiece p) {
         board[p.getRow()][p.getCol()] = p;
+        setBits(p, p.getSquare());
+
+        if (p.getType() == ChessConstants.KING) {
+            if (p.isWhite()) wKingPosition = p.getPosition();
+            else bKingPosition = p.getPosition();
+        }
+    }
+
+    private void putPiece(ChessPiece p, int square) {
+        p.setPosition(Position.of(square));
+        addPiece(p);
+    }
+
+    private ChessPiece removePiece(int square) {
+        ChessPiece p = getPiece(square);
+
+        board[Bitboard.row(square)][Bitboard.col(square)] = null;
+        clearBits(p, square);
+        return p;
+    }
+
+    private void updateEnPassant(int square) {
+        hash ^= Zobrist.enPassant(enPassantSquare) ^ Zobrist.enPassant(square);
+        enPassantSquare = square;
+        legalMovesValid = false;
+    }
+
+    private void updateCastling(int rights) {
+        hash ^= Zobrist.castling(castlingRights) ^ Zobrist.castling(rights);
+        castlingRights = rights;
+        legalMovesValid = false;
+    }
+
+    private void switchSide() {
+        whiteToMove = !whiteToMove;
+        hash ^= Zobrist.blackToMove();
+        legalMovesValid = false;
+    }
+
+    private static int pieceIndex(boolean white, int type) {
+        return white ? type : type + ChessConstants.PIECE_TYPES;
+    }
+
+    private void setBits(ChessPiece p, int square) {
+        long bit = Bitboard.bit(square);
+
+        pieceBitboards[pieceIndex(p.isWhite(), p.getType())] |= bit;
+        hash ^= Zobrist.piece(p.isWhite(), p.getType(), square);
+        if (p.isWhite()) whitePieces |= bit;
+        else blackPieces |= bit;
+        occupied |= bit;
+        legalMovesValid = false;
+    }
+
+    private void clearBits(ChessPiece p, int square) {
+        long bit = Bitboard.bit(square);
+
+        pieceBitboards[pieceIndex(p.isWhite(), p.getType())] &= ~bit;
+        hash ^= Zobrist.piece(p.isWhite(), p.getType(), square);
+        if (p.isWhite()) whitePieces &= ~bit;
+        else blackPieces &= ~bit;
+        occupied &= ~bit;
+        legalMovesValid = false;
     }
 }
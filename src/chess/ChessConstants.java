@@ -20,4 +20,21 @@ public interface ChessConstants {
     public static final int ROOK_VALUE   = 5;
     public static final int QUEEN_VALUE  = 9;
 
+    // piece type indices used by the bitboards in ChessBoard
+    public static final int PAWN   = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK   = 3;
+    public static final int QUEEN  = 4;
+    public static final int KING   = 5;
+
+    public static final int PIECE_TYPES = 6;
+
+    // castling rights bits
+    public static final int WHITE_KINGSIDE  = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE  = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+    public static final int ALL_CASTLING    = 15;
+
 }
@@ -3,16 +3,31 @@ package chess;
 import chess.pieces.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 public class ChessGame {
     private final ChessBoard board = new ChessBoard();
+    private final FenExporter fen = new FenExporter(board);
     private final List<String> log = new ArrayList<>();
-    private boolean whiteTurn = true;
+    // position the logged moves start from, null for the start position
+    private String startFen;
+    private boolean captureOrPawnMove;
     private boolean enPassantMove;
+    private ChessBoard.Position enPassantCapture;
+    private ChessBoard.Position[] castleRook;
     private boolean check;
     private boolean checkMate;
+    private boolean staleMate;
     private boolean promotion;
+    // keys of every position of the game so far, the current one last, see ChessBoard.getPositionKey
+    private long[] hashes = new long[256];
+    private int hashCount;
+
+    public ChessGame() {
+        resetGame();
+    }
 
     public ChessBoard getBoard() {
         return board;
@@ -22,6 +37,27 @@ public class ChessGame {
         return log;
     }
 
+    public String getStartFen() {
+        return startFen;
+    }
+
+    // FEN of the current position
+    public String getFen() {
+        return fen.toFen();
+    }
+
+    /*
+     * Starts over from the position in `fen`, throws IllegalArgumentException
+     * if it is not valid (see Fen.load) and leaves the game as it was.
+     */
+    public void loadFen(String fen) {
+        board.loadFen(fen);
+
+        resetState();
+        startFen = fen;
+        updateGameState();
+    }
+
     public boolean hasPromotion() {
         return promotion;
     }
@@ -34,85 +70,207 @@ public class ChessGame {
         return checkMate;
     }
 
+    public boolean hasStaleMate() {
+        return staleMate;
+    }
+
+    // the side to move is in check, worked out from the board where hasCheck remembers the last result
+    public boolean isInCheck() {
+        return board.isInCheck(isWhiteTurn());
+    }
+
+    // the side to move is in check and has no legal move, worked out from the board
+    public boolean isCheckmate() {
+        return isInCheck() && !board.hasLegalMove();
+    }
+
+    // a hundred half moves without a capture or a pawn move
+    public boolean hasFiftyMoveRule() {
+        return board.getHalfmoveClock() >= 100;
+    }
+
+    // the current position has come up for the third time
+    public boolean hasThreefoldRepetition() {
+        long hash = hashes[hashCount - 1];
+        int seen = 1;
+
+        // only positions since the last capture or pawn move can repeat, each with the same side to move
+        int first = Math.max(0, hashCount - 1 - board.getHalfmoveClock());
+        for (int i = hashCount - 3; i >= first; i -= 2) {
+            if (hashes[i] == hash && ++seen == 3) return true;
+        }
+        return false;
+    }
+
+    /*
+     * Neither side can mate whatever is played: kings alone, one minor
+     * piece, or bishops that all stand on squares of one colour.
+     */
+    public boolean hasInsufficientMaterial() {
+        long heavy = 0;
+        for (boolean white : new boolean[] {true, false}) {
+            heavy |= board.getPieces(white, ChessConstants.PAWN) | board.getPieces(white, ChessConstants.ROOK)
+                    | board.getPieces(white, ChessConstants.QUEEN);
+        }
+        if (heavy != 0) return false;
+
+        long knights = board.getPieces(true, ChessConstants.KNIGHT) | board.getPieces(false, ChessConstants.KNIGHT);
+        long bishops = board.getPieces(true, ChessConstants.BISHOP) | board.getPieces(false, ChessConstants.BISHOP);
+        if (Long.bitCount(knights | bishops) <= 1) return true;
+        return knights == 0 && ((bishops & Bitboard.LIGHT_SQUARES) == 0 || (bishops & ~Bitboard.LIGHT_SQUARES) == 0);
+    }
+
     public boolean isWhiteTurn() {
-        return this.whiteTurn;
+        return board.isWhiteToMove();
     }
 
     public boolean isEnPassantMove() {
         return enPassantMove;
     }
 
+    // square of the pawn taken by the last en passant move
+    public ChessBoard.Position getEnPassantCapture() {
+        return enPassantCapture;
+    }
+
+    public boolean isCastleMove() {
+        return castleRook != null;
+    }
+
+    // start and end square of the rook moved by the last castling move
+    public ChessBoard.Position[] getCastleRook() {
+        return castleRook;
+    }
+
     public void promote(ChessBoard.Position oldpos, ChessBoard.Position newpos, Class<?> c) {
         ChessPiece p = c.equals(Queen.class)
-                ? new Queen(newpos.row(), newpos.col(), whiteTurn, board)
+                ? new Queen(newpos.row(), newpos.col(), isWhiteTurn(), board)
                 : c.equals(Rook.class)
-                ? new Rook(newpos.row(), newpos.col(), whiteTurn, board)
+                ? new Rook(newpos.row(), newpos.col(), isWhiteTurn(), board)
                 : c.equals(Bishop.class)
-                ? new Bishop(newpos.row(), newpos.col(), whiteTurn, board)
+                ? new Bishop(newpos.row(), newpos.col(), isWhiteTurn(), board)
                 : c.equals(Knight.class)
-                ? new Knight(newpos.row(), newpos.col(), whiteTurn, board):
+                ? new Knight(newpos.row(), newpos.col(), isWhiteTurn(), board):
                     null;
 
         board.promotePiece(p);
         promotion = false;
-        whiteTurn = !whiteTurn;
+        switchTurn();
 
         log.add(oldpos.toString() + newpos + p.toString().toLowerCase());
-
-        if (isCheck(newpos) && isCheckMate()) {
-            checkMate = true;
-        }
+        updateGameState();
     }
 
     public boolean moveIfLegal(ChessBoard.Position oldPos, ChessBoard.Position newPos) {
         if (isLegalMove(oldPos, newPos)) {
+            captureOrPawnMove = board.getPiece(oldPos) instanceof Pawn || !board.isEmpty(newPos);
+
             if (isEnPassantMove(oldPos, newPos)) {
-                board.movePiece(oldPos, board.getEnPassantPiece());
-                board.movePiece(board.getEnPassantPiece(), newPos);
+                enPassantCapture = board.getEnPassantPiece();
+                board.movePiece(oldPos, enPassantCapture);
+                board.movePiece(enPassantCapture, newPos);
+                board.setEnPassantSquare(null);
             } else {
+                castleRook = castlingRookMove(oldPos, newPos);
                 board.movePiece(oldPos, newPos);
+                if (castleRook != null) board.movePiece(castleRook[0], castleRook[1]);
                 updateEnPassantSquare(oldPos.row(), newPos);
 
                 if (checkForPawnPromotion(newPos)) return true;
             }
-            whiteTurn = !whiteTurn;
+            switchTurn();
 
             log.add(oldPos.toString() + newPos);
-
-            if (isCheck(newPos) && isCheckMate()) {
-                checkMate = true;
-            }
+            updateGameState();
             return true;
         }
         return false;
     }
 
-    public void resetGame() {
+    /*
+     * Plays a move in coordinate notation, e.g. "e2e4" or "e7e8n", as an
+     * engine sends it. Returns false, and plays nothing, if it is not legal.
+     */
+    public boolean moveUci(String uci) {
+        int move = Move.parseUci(board, uci);
+        if (move == Move.NONE) return false;
+
+        ChessBoard.Position from = ChessBoard.Position.of(Move.from(move));
+        ChessBoard.Position to = ChessBoard.Position.of(Move.to(move));
+        if (!moveIfLegal(from, to)) return false;
+
+        if (promotion) {
+            promote(from, to, switch (Move.promotion(move)) {
+                case ChessConstants.ROOK -> Rook.class;
+                case ChessConstants.BISHOP -> Bishop.class;
+                case ChessConstants.KNIGHT -> Knight.class;
+                default -> Queen.class;
+            });
+        }
+        return true;
+    }
+
+    // leaf node count of the move tree from the current position, see ChessBoard.perft
+    public long perft(int depth) {
+        return board.perft(depth);
+    }
+
+    public Map<String, Long> divide(int depth) {
+        return board.divide(depth);
+    }
+
+    // back to the start position on the same board, so one game object can be reused
+    public final void resetGame() {
         ChessBoard.startpos(board);
-        whiteTurn = true;
+        resetState();
     }
 
+    // everything but the board back to how a game starts on it
+    private void resetState() {
+        log.clear();
+        startFen = null;
+        enPassantMove = false;
+        enPassantCapture = null;
+        castleRook = null;
+        check = checkMate = staleMate = promotion = false;
+        hashCount = 0;
+        recordHash();
+    }
 
-    private boolean isLegalMove(ChessBoard.Position start, ChessBoard.Position end) {
-        ChessPiece p = board.getPiece(start);
+    private void switchTurn() {
+        board.setWhiteToMove(!board.isWhiteToMove());
+        board.tickClocks(captureOrPawnMove);
+        recordHash();
+    }
 
-        return (p != null && p.isWhite() == whiteTurn && p.isLegalMove(end));
+    private void recordHash() {
+        if (hashCount == hashes.length) hashes = Arrays.copyOf(hashes, hashCount * 2);
+        hashes[hashCount++] = board.getPositionKey();
     }
 
-    private boolean isCheck(ChessBoard.Position lastMove) {
-        return check = board.getPiece(lastMove)
-                .getLegalMoves().contains(board.getKingPosition(whiteTurn));
+
+    private boolean isLegalMove(ChessBoard.Position start, ChessBoard.Position end) {
+        ChessPiece p = board.getPiece(start);
+
+        return (p != null && p.isWhite() == isWhiteTurn() && p.isLegalMove(end));
     }
 
-    private boolean isCheckMate() {
-        return ChessBoard.stream(board)
-                .filter(f -> f.isWhite() == whiteTurn)
-                .allMatch(p -> p.getLegalMoves().isEmpty());
+    /*
+     * Check, checkmate and stalemate for the side now to move. The checkers
+     * come from the king's square outwards so discovered and double checks
+     * count too, and a single legal move anywhere rules out both mates.
+     */
+    private void updateGameState() {
+        check = isInCheck();
+        boolean noMoves = !board.hasLegalMove();
+
+        checkMate = check && noMoves;
+        staleMate = !check && noMoves;
     }
 
     private boolean checkForPawnPromotion(ChessBoard.Position newPos) {
-        return promotion = ((newPos.row() == ChessConstants.WHITE_HOME_RANK && !whiteTurn) ||
-                (newPos.row() == ChessConstants.BLACK_HOME_RANK && whiteTurn)) &&
+        return promotion = ((newPos.row() == ChessConstants.WHITE_HOME_RANK && !isWhiteTurn()) ||
+                (newPos.row() == ChessConstants.BLACK_HOME_RANK && isWhiteTurn())) &&
                 board.getPiece(newPos) instanceof Pawn;
     }
 
@@ -126,13 +284,24 @@ public class ChessGame {
                 ChessBoard.Position enPassSquare = new ChessBoard.Position(
                         p.isWhite() ? startRow - 1 : startRow + 1, endPos.col());
 
-                board.setEnPassantSquare(new ChessBoard.Position[] { enPassSquare, endPos });
+                board.setEnPassantSquare(enPassSquare);
                 return;
             }
         }
         board.setEnPassantSquare(null);
     }
 
+    // a king moving two squares castles, the rook jumps to the square it passed over
+    private ChessBoard.Position[] castlingRookMove(ChessBoard.Position oldPos, ChessBoard.Position newPos) {
+        if (!(board.getPiece(oldPos) instanceof King) || Math.abs(newPos.col() - oldPos.col()) != 2) return null;
+
+        boolean kingside = newPos.col() > oldPos.col();
+        return new ChessBoard.Position[] {
+                new ChessBoard.Position(oldPos.row(), kingside ? 7 : 0),
+                new ChessBoard.Position(oldPos.row(), kingside ? 5 : 3)
+        };
+    }
+
     private boolean isEnPassantMove(ChessBoard.Position oldPos, ChessBoard.Position newPos) {
         return enPassantMove = getBoard().getPiece(oldPos) instanceof Pawn &&
                 board.hasEnPassantSquare() &&
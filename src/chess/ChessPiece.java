@@ -1,5 +1,6 @@
 package chess;
 
+import java.util.ArrayList;
 import java.util.List;
 
 
@@ -7,33 +8,45 @@ public abstract class ChessPiece {
     private final boolean white;
     private final ChessBoard board;
     private final String symbol;
+    private final int type;
     private ChessBoard.Position position;
     protected int value;
 
 
-    public ChessPiece(int row, int col, boolean white, ChessBoard board, String symbol) {
+    public ChessPiece(int row, int col, boolean white, ChessBoard board, String symbol, int type) {
         this.position = new ChessBoard.Position(row, col);
         this.white = white;
         this.board = board;
         this.symbol = symbol;
+        this.type = type;
     }
 
-    public abstract List<ChessBoard.Position> getLegalMoves();
+    // squares this piece attacks on the current board
+    public abstract long attacks();
 
-    public boolean isLegalMove(ChessBoard.Position newPosition) {
-        // new position must be on the board and if not empty square, must be opposite color
-        if (!(newPosition.isOnBoard() &&
-                (getBoard().isEmpty(newPosition) ||
-                        !this.isSameColor(getBoard().getPiece(newPosition))))) return false;
+    // squares this piece could move to if its own king's safety is ignored
+    protected long pseudoLegalTargets() {
+        return getBoard().pseudoLegalTargets(type, white, getSquare());
+    }
+
+    // pieces of the side to move share the board's cached generation
+    public long legalTargets() {
+        if (white == getBoard().isWhiteToMove()) return getBoard().legalTargets(getSquare());
+        return getBoard().legalTargets(this, pseudoLegalTargets());
+    }
+
+    public List<ChessBoard.Position> getLegalMoves() {
+        List<ChessBoard.Position> ret = new ArrayList<>();
 
-        // cant move into check
-        return getBoard().isCloned() || moveNotInCheck(newPosition);
+        for (long bb = legalTargets(); bb != Bitboard.EMPTY; bb = Bitboard.clearFirst(bb)) {
+            ret.add(ChessBoard.Position.of(Bitboard.first(bb)));
+        }
+        return ret;
     }
 
-    protected boolean isLegalMovePawnWorkaround(ChessBoard.Position newPosition) {
-        // workaround only for pawns so that moveNotInCheck can be called last
-        // and does not need the same checks for `isLegalMove()`
-        return getBoard().isCloned() || moveNotInCheck(newPosition);
+    public boolean isLegalMove(ChessBoard.Position newPosition) {
+        return newPosition.isOnBoard() &&
+                Bitboard.contains(legalTargets(), Bitboard.square(newPosition));
     }
 
     public ChessBoard getBoard() {
@@ -44,6 +57,11 @@ public abstract class ChessPiece {
         return symbol;
     }
 
+    // one of the piece type constants in ChessConstants
+    public int getType() {
+        return type;
+    }
+
     public ChessBoard.Position getPosition() {
         return this.position;
     }
@@ -56,6 +74,10 @@ public abstract class ChessPiece {
         return position.col();
     }
 
+    public int getSquare() {
+        return Bitboard.square(position);
+    }
+
     public void setPosition(ChessBoard.Position newPosition) {
         this.position = newPosition;
     }
@@ -71,115 +93,4 @@ public abstract class ChessPiece {
     public boolean notSameColor(ChessPiece piece) {
         return this.isWhite() != piece.isWhite();
     }
-
-    protected boolean isBlocked(ChessBoard.Position position) {
-        int dRow = Integer.compare(position.row(), this.getRow());
-        int dCol = Integer.compare(position.col(), this.getCol());
-        int row = this.getRow() + dRow;
-        int col = this.getCol() + dCol;
-
-        while (!position.equals(row, col)) {
-            if (getBoard().getPiece(row, col) != null) return true;
-            row += dRow;
-            col += dCol;
-        }
-        return false;
-    }
-
-    protected void addLineMoves(ChessBoard.Position position, List<ChessBoard.Position> l) {
-        int row = position.row();
-        int col = position.col();
-
-        while (++row < ChessConstants.MAX_ROW) {
-            if (addIfLegalMove(row, col, l)) break;
-        }
-        row = this.getRow();
-
-        while (row-- > ChessConstants.MIN_ROW) {
-            if (addIfLegalMove(row, col, l)) break;
-        }
-        row = this.getRow();
-
-        while (++col < ChessConstants.MAX_COL) {
-            if (addIfLegalMove(row, col, l)) break;
-        }
-        col = this.getCol();
-
-        while (col-- > ChessConstants.MIN_COL) {
-            if (addIfLegalMove(row, col, l)) break;
-        }
-    }
-
-    protected void addDiagonalMoves(ChessBoard.Position position, List<ChessBoard.Position> l) {
-        int row = position.row();
-        int col = position.col();
-
-        while (++row < ChessConstants.MAX_ROW && ++col < ChessConstants.MAX_COL) {
-            if (addIfLegalMove(row, col, l)) break;
-        }
-        row = position.row();
-        col = position.col();
-
-        while (row-- > ChessConstants.MIN_ROW && col-- > ChessConstants.MIN_COL) {
-            if (addIfLegalMove(row, col, l)) break;
-        }
-        row = position.row();
-        col = position.col();
-
-        while (++row < ChessConstants.MAX_ROW && col-- > ChessConstants.MIN_COL) {
-            if (addIfLegalMove(row, col, l)) break;
-        }
-        row = position.row();
-        col = position.col();
-
-        while (row-- > ChessConstants.MIN_ROW && ++col < ChessConstants.MAX_COL) {
-            if (addIfLegalMove(row, col, l)) break;
-        }
-    }
-
-    private boolean addIfLegalMove(int row, int col, List<ChessBoard.Position> l) {
-        if (!getBoard().isEmpty(row, col)) {
-            ChessPiece p = getBoard().getPiece(row, col);
-
-            if (this.notSameColor(p)) {
-                if (board.isCloned() || moveNotInCheck(p.getPosition())) {
-                    l.add(p.getPosition());
-                }
-            }
-            return true;
-        }
-        ChessBoard.Position pos = new ChessBoard.Position(row, col);
-
-        if (board.isCloned() || moveNotInCheck(pos)) l.add(pos);
-
-        return false;
-    }
-
-    private boolean moveNotInCheck(ChessBoard.Position newPos) {
-        ChessBoard cloneBoard = ChessBoard.newInstance(getBoard());
-        cloneBoard.movePiece(getPosition(), newPos);
-
-        ChessBoard.Position kingPos = cloneBoard.getKingPosition(isWhite());
-
-        // scan entire board to see if the board is in a state where the king is in check
-        return ChessBoard.stream(cloneBoard)
-                .filter(this::notSameColor)
-                .noneMatch(f -> f.getLegalMoves().contains(kingPos));
-    }
-
-
-//        private boolean moveNotInCheck(ChessBoard.Position newPos) {
-//        ChessBoard cloneBoard = ChessBoard.newInstance(getBoard());
-//        cloneBoard.movePiece(getPosition(), newPos);
-//        cloneBoard.cloned = true;
-//        ChessBoard.Position kingPos = cloneBoard.getKingPosition(isWhite());
-//        for (int row = 0; row < 8; row++) {
-//            for (int col = 0; col < 8; col++) {
-//                ChessPiece p = cloneBoard.getPiece(row, col);
-//                if (p == null || p.isSameColor(this)) continue;
-//                if (p.getLegalMoves().contains(kingPos)) return false;
-//            }
-//        }
-//        return true;
-//    }
-}
\ No newline at end of file
+}
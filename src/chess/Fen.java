@@ -0,0 +1,216 @@
+package chess;
+
+/*
+ * Positions in Forsyth-Edwards Notation, e.g. the start position:
+ *
+ *   rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1
+ *
+ * FEN lists rank 8 first, the same order as the rows of ChessBoard.
+ * The halfmove and fullmove counters are optional when reading and
+ * default to 0 and 1. For writing the same board over and over see
+ * FenExporter.
+ */
+public final class Fen {
+    public static final String STARTPOS = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    static final String PIECE_SYMBOLS = "pnbrqk";
+
+    private Fen() {}
+
+    /*
+     * Replaces the position on `board`. Throws IllegalArgumentException if
+     * the string is malformed or the position could not come up in a game:
+     * no single king per side, pawns on the first or last rank or the side
+     * not to move in check. Castling rights without king and rook on their
+     * home squares are dropped. The string is checked in full before the
+     * board is touched, a FEN that fails leaves it as it was.
+     */
+    public static void load(ChessBoard board, String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 4) throw new IllegalArgumentException("Invalid FEN: " + fen);
+
+        String[] rows = fields[0].split("/");
+        if (rows.length != ChessConstants.MAX_ROW) throw new IllegalArgumentException("Invalid FEN: " + fen);
+
+        // bitboards by piece, white ones first, as in ChessBoard
+        long[] pieces = new long[2 * ChessConstants.PIECE_TYPES];
+        for (int row = 0; row < ChessConstants.MAX_ROW; row++) {
+            int col = 0;
+
+            for (char c : rows[row].toCharArray()) {
+                if (c >= '1' && c <= '8') {
+                    col += c - '0';
+                    continue;
+                }
+                int type = PIECE_SYMBOLS.indexOf(Character.toLowerCase(c));
+                if (type < 0 || col >= ChessConstants.MAX_COL) throw new IllegalArgumentException("Invalid FEN: " + fen);
+
+                pieces[index(Character.isUpperCase(c), type)] |= Bitboard.bit(row, col++);
+            }
+            if (col != ChessConstants.MAX_COL) throw new IllegalArgumentException("Invalid FEN: " + fen);
+        }
+        if (Bitboard.count(pieces[index(true, ChessConstants.KING)]) != 1
+                || Bitboard.count(pieces[index(false, ChessConstants.KING)]) != 1) {
+            throw new IllegalArgumentException("Invalid FEN, each side needs one king: " + fen);
+        }
+        long backRanks = Bitboard.EMPTY;
+        for (int col = 0; col < ChessConstants.MAX_COL; col++) {
+            backRanks |= Bitboard.bit(ChessConstants.BLACK_HOME_RANK, col) | Bitboard.bit(ChessConstants.WHITE_HOME_RANK, col);
+        }
+        if (((pieces[index(true, ChessConstants.PAWN)] | pieces[index(false, ChessConstants.PAWN)]) & backRanks) != 0) {
+            throw new IllegalArgumentException("Invalid FEN, pawn on the first or last rank: " + fen);
+        }
+
+        if (!fields[1].equals("w") && !fields[1].equals("b")) throw new IllegalArgumentException("Invalid FEN: " + fen);
+        boolean white = fields[1].equals("w");
+        if (attacked(pieces, Bitboard.first(pieces[index(!white, ChessConstants.KING)]), white)) {
+            throw new IllegalArgumentException("Invalid FEN, the side not to move is in check: " + fen);
+        }
+
+        int castling = parseCastling(fields[2], pieces, fen);
+        ChessBoard.Position enPassant = parseEnPassant(fields[3], pieces, white, fen);
+        int halfmoveClock = fields.length > 4 ? parseCounter(fields[4], 0, fen) : 0;
+        int fullmoveNumber = fields.length > 5 ? parseCounter(fields[5], 1, fen) : 1;
+
+        board.clear();
+        for (int i = 0; i < pieces.length; i++) {
+            boolean whitePiece = i < ChessConstants.PIECE_TYPES;
+            int type = i % ChessConstants.PIECE_TYPES;
+            for (long bits = pieces[i]; bits != Bitboard.EMPTY; bits = Bitboard.clearFirst(bits)) {
+                int square = Bitboard.first(bits);
+                board.addPiece(ChessBoard.createPiece(type, whitePiece, Bitboard.row(square), Bitboard.col(square), board));
+            }
+        }
+        board.setWhiteToMove(white);
+        board.setCastlingRights(castling);
+        board.setEnPassantSquare(enPassant);
+        board.setClocks(halfmoveClock, fullmoveNumber);
+    }
+
+    // the whole position as FEN, with both clocks
+    public static String toFen(ChessBoard board) {
+        StringBuilder sb = new StringBuilder(90);
+
+        for (int row = 0; row < ChessConstants.MAX_ROW; row++) {
+            if (row > 0) sb.append('/');
+            appendRow(sb, board, row);
+        }
+        appendState(sb, board);
+        return sb.toString();
+    }
+
+    static void appendRow(StringBuilder sb, ChessBoard board, int row) {
+        int empty = 0;
+
+        for (int col = 0; col < ChessConstants.MAX_COL; col++) {
+            ChessPiece p = board.getPiece(row, col);
+
+            if (p == null) {
+                empty++;
+                continue;
+            }
+            if (empty > 0) sb.append((char) ('0' + empty));
+            empty = 0;
+
+            char symbol = PIECE_SYMBOLS.charAt(p.getType());
+            sb.append(p.isWhite() ? Character.toUpperCase(symbol) : symbol);
+        }
+        if (empty > 0) sb.append((char) ('0' + empty));
+    }
+
+    // everything after the piece placement: side, castling, en passant and clocks
+    static void appendState(StringBuilder sb, ChessBoard board) {
+        sb.append(board.isWhiteToMove() ? " w " : " b ");
+
+        int rights = board.getCastlingRights();
+        if (rights == 0) sb.append('-');
+        if ((rights & ChessConstants.WHITE_KINGSIDE) != 0) sb.append('K');
+        if ((rights & ChessConstants.WHITE_QUEENSIDE) != 0) sb.append('Q');
+        if ((rights & ChessConstants.BLACK_KINGSIDE) != 0) sb.append('k');
+        if ((rights & ChessConstants.BLACK_QUEENSIDE) != 0) sb.append('q');
+
+        sb.append(' ');
+        if (board.hasEnPassantSquare()) {
+            ChessBoard.Position ep = board.getEnPassantSquare();
+            sb.append((char) ('a' + ep.col())).append((char) ('8' - ep.row()));
+        } else {
+            sb.append('-');
+        }
+
+        sb.append(' ').append(board.getHalfmoveClock()).append(' ').append(board.getFullmoveNumber());
+    }
+
+    // only a square a pawn of the side not to move could just have skipped over
+    private static ChessBoard.Position parseEnPassant(String field, long[] pieces, boolean white, String fen) {
+        if (field.equals("-")) return null;
+        if (field.length() != 2 || field.charAt(0) < 'a' || field.charAt(0) > 'h'
+                || field.charAt(1) != (white ? '6' : '3')) {
+            throw new IllegalArgumentException("Invalid FEN: " + fen);
+        }
+
+        ChessBoard.Position square = new ChessBoard.Position(field);
+        int pawnRow = square.row() + (white ? 1 : -1);
+        boolean pawnThere = hasPiece(pieces, !white, ChessConstants.PAWN, pawnRow, square.col());
+        boolean empty = true;
+        for (long bits : pieces) empty &= !Bitboard.contains(bits, Bitboard.square(square));
+
+        return pawnThere && empty ? square : null;
+    }
+
+    private static int parseCounter(String field, int min, String fen) {
+        try {
+            int value = Integer.parseInt(field);
+            if (value >= min) return value;
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException("Invalid FEN: " + fen);
+    }
+
+    private static int parseCastling(String field, long[] pieces, String fen) {
+        if (field.equals("-")) return 0;
+        int rights = 0;
+
+        for (char c : field.toCharArray()) {
+            rights |= switch (c) {
+                case 'K' -> ChessConstants.WHITE_KINGSIDE;
+                case 'Q' -> ChessConstants.WHITE_QUEENSIDE;
+                case 'k' -> ChessConstants.BLACK_KINGSIDE;
+                case 'q' -> ChessConstants.BLACK_QUEENSIDE;
+                default -> throw new IllegalArgumentException("Invalid FEN, unknown castling right: " + fen);
+            };
+        }
+        // drop rights the pieces on the board cannot back up
+        if (!hasPiece(pieces, true, ChessConstants.KING, ChessConstants.WHITE_HOME_RANK, 4)) {
+            rights &= ~(ChessConstants.WHITE_KINGSIDE | ChessConstants.WHITE_QUEENSIDE);
+        }
+        if (!hasPiece(pieces, false, ChessConstants.KING, ChessConstants.BLACK_HOME_RANK, 4)) {
+            rights &= ~(ChessConstants.BLACK_KINGSIDE | ChessConstants.BLACK_QUEENSIDE);
+        }
+        if (!hasPiece(pieces, true, ChessConstants.ROOK, ChessConstants.WHITE_HOME_RANK, 7)) rights &= ~ChessConstants.WHITE_KINGSIDE;
+        if (!hasPiece(pieces, true, ChessConstants.ROOK, ChessConstants.WHITE_HOME_RANK, 0)) rights &= ~ChessConstants.WHITE_QUEENSIDE;
+        if (!hasPiece(pieces, false, ChessConstants.ROOK, ChessConstants.BLACK_HOME_RANK, 7)) rights &= ~ChessConstants.BLACK_KINGSIDE;
+        if (!hasPiece(pieces, false, ChessConstants.ROOK, ChessConstants.BLACK_HOME_RANK, 0)) rights &= ~ChessConstants.BLACK_QUEENSIDE;
+        return rights;
+    }
+
+    private static boolean hasPiece(long[] pieces, boolean white, int type, int row, int col) {
+        return Bitboard.contains(pieces[index(white, type)], Bitboard.square(row, col));
+    }
+
+    private static int index(boolean white, int type) {
+        return white ? type : type + ChessConstants.PIECE_TYPES;
+    }
+
+    // ChessBoard.attackersTo on the bitboards of a position not yet on a board
+    private static boolean attacked(long[] pieces, int square, boolean byWhite) {
+        long occupied = Bitboard.EMPTY;
+        for (long bits : pieces) occupied |= bits;
+        long queens = pieces[index(byWhite, ChessConstants.QUEEN)];
+
+        return ((Attacks.pawn(!byWhite, square) & pieces[index(byWhite, ChessConstants.PAWN)])
+                | (Attacks.knight(square) & pieces[index(byWhite, ChessConstants.KNIGHT)])
+                | (Attacks.king(square) & pieces[index(byWhite, ChessConstants.KING)])
+                | (Attacks.bishop(square, occupied) & (pieces[index(byWhite, ChessConstants.BISHOP)] | queens))
+                | (Attacks.rook(square, occupied) & (pieces[index(byWhite, ChessConstants.ROOK)] | queens))) != Bitboard.EMPTY;
+    }
+}
@@ -0,0 +1,58 @@
+package chess;
+
+/*
+ * Writes the FEN of one board again and again, e.g. once per move, into
+ * a buffer it reuses. The placement of each row is kept between calls and
+ * only rows whose pieces changed since the last call are encoded again,
+ * found by comparing the piece bitboards with the ones seen then. A move
+ * touches at most two rows, castling and en passant included.
+ */
+public class FenExporter {
+    private final ChessBoard board;
+    private final long[] seen = new long[2 * ChessConstants.PIECE_TYPES];
+    private final StringBuilder[] rows = new StringBuilder[ChessConstants.MAX_ROW];
+    private final StringBuilder buffer = new StringBuilder(90);
+    private boolean started;
+
+    public FenExporter(ChessBoard board) {
+        this.board = board;
+        for (int row = 0; row < rows.length; row++) rows[row] = new StringBuilder(ChessConstants.MAX_COL);
+    }
+
+    /*
+     * The FEN of the board as it is now. The returned buffer is reused,
+     * its contents only stay valid until the next call.
+     */
+    public CharSequence export() {
+        long changed = started ? Bitboard.EMPTY : ~Bitboard.EMPTY;
+        started = true;
+
+        for (int type = 0; type < ChessConstants.PIECE_TYPES; type++) {
+            changed |= update(type, board.getPieces(true, type));
+            changed |= update(type + ChessConstants.PIECE_TYPES, board.getPieces(false, type));
+        }
+
+        buffer.setLength(0);
+        for (int row = 0; row < ChessConstants.MAX_ROW; row++) {
+            if (((changed >>> (row * 8)) & 0xFF) != 0) {
+                rows[row].setLength(0);
+                Fen.appendRow(rows[row], board, row);
+            }
+            if (row > 0) buffer.append('/');
+            buffer.append(rows[row]);
+        }
+        Fen.appendState(buffer, board);
+        return buffer;
+    }
+
+    public String toFen() {
+        return export().toString();
+    }
+
+    // squares where the bitboard at `index` differs from the last call
+    private long update(int index, long pieces) {
+        long changed = seen[index] ^ pieces;
+        seen[index] = pieces;
+        return changed;
+    }
+}
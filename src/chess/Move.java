@@ -0,0 +1,105 @@
+package chess;
+
+/*
+ * Moves packed into a single int so they can be stored in primitive
+ * arrays without boxing:
+ *
+ *   bits  0-5   from square
+ *   bits  6-11  to square
+ *   bits 12-14  moving piece type
+ *   bits 15-17  captured piece type, NO_PIECE if none
+ *   bits 18-20  promotion piece type, NO_PIECE if none
+ *   bits 21-23  flags
+ *
+ * Squares use the Bitboard numbering (row * 8 + col). No legal move
+ * encodes to NONE, so it can mark "no move".
+ */
+public final class Move {
+    public static final int NONE = 0;
+    public static final int NO_PIECE = 7;
+
+    public static final int EN_PASSANT  = 1;
+    public static final int CASTLE      = 2;
+    public static final int DOUBLE_PUSH = 4;
+
+    private static final char[] PROMOTION_SYMBOLS = { 'p', 'n', 'b', 'r', 'q', 'k' };
+
+    private Move() {}
+
+    public static int encode(int from, int to, int piece, int captured, int promotion, int flags) {
+        return from | (to << 6) | (piece << 12) | (captured << 15) | (promotion << 18) | (flags << 21);
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    public static int piece(int move) {
+        return (move >>> 12) & 7;
+    }
+
+    public static int captured(int move) {
+        return (move >>> 15) & 7;
+    }
+
+    public static int promotion(int move) {
+        return (move >>> 18) & 7;
+    }
+
+    public static int flags(int move) {
+        return move >>> 21;
+    }
+
+    public static boolean isCapture(int move) {
+        return captured(move) != NO_PIECE;
+    }
+
+    public static boolean isPromotion(int move) {
+        return promotion(move) != NO_PIECE;
+    }
+
+    /*
+     * The legal move on `board` written in coordinate notation, or NONE if
+     * the string is malformed or names no legal move. A promotion without
+     * a piece letter is read as a queen promotion.
+     */
+    public static int parseUci(ChessBoard board, String uci) {
+        if (uci.length() < 4 || uci.length() > 5) return NONE;
+
+        int from = parseSquare(uci.charAt(0), uci.charAt(1));
+        int to = parseSquare(uci.charAt(2), uci.charAt(3));
+        int promotion = uci.length() == 5
+                ? new String(PROMOTION_SYMBOLS).indexOf(Character.toLowerCase(uci.charAt(4)))
+                : ChessConstants.QUEEN;
+        if (from < 0 || to < 0 || promotion < 0) return NONE;
+
+        MoveList moves = new MoveList();
+        board.generateMoves(moves);
+
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+
+            if (from(move) == from && to(move) == to
+                    && (!isPromotion(move) || promotion(move) == promotion)) {
+                return move;
+            }
+        }
+        return NONE;
+    }
+
+    private static int parseSquare(char file, char rank) {
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') return -1;
+        return Bitboard.square('8' - rank, file - 'a');
+    }
+
+    // coordinate notation as used in the game log and by UCI, e.g. "e2e4" or "e7e8q"
+    public static String toUci(int move) {
+        String uci = ChessBoard.Position.of(from(move)).toString() + ChessBoard.Position.of(to(move));
+
+        return isPromotion(move) ? uci + PROMOTION_SYMBOLS[promotion(move)] : uci;
+    }
+}
@@ -0,0 +1,87 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/*
+ * Perft spread over a ForkJoinPool. The tree is split at the root, and
+ * optionally at the second ply too so there are enough tasks to keep
+ * many cores busy. A ChessBoard and its pieces are not thread safe, so
+ * every task plays its move on its own copy of the board and counts its
+ * subtree with the sequential ChessBoard.perft. Tasks may share one
+ * TranspositionTable, which needs no locking.
+ */
+public class ParallelPerft implements AutoCloseable {
+    private final ForkJoinPool pool;
+    private final int splitDepth;
+    private TranspositionTable table;
+
+    public ParallelPerft(int threads) {
+        this(threads, 2);
+    }
+
+    // `splitDepth` is how many plies from the root are split into separate tasks
+    public ParallelPerft(int threads, int splitDepth) {
+        this.pool = new ForkJoinPool(threads);
+        this.splitDepth = Math.max(1, splitDepth);
+    }
+
+    // subtree counts are cached in `table` from now on, null turns that off
+    public void setTable(TranspositionTable table) {
+        this.table = table;
+    }
+
+    public int getThreads() {
+        return pool.getParallelism();
+    }
+
+    public long perft(ChessBoard board, int depth) {
+        if (depth < 1) return 1;
+        return pool.invoke(new PerftTask(ChessBoard.newInstance(board), depth, splitDepth, table));
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    // serializable only through ForkJoinTask, tasks never leave the pool
+    private static final class PerftTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient ChessBoard board;
+        private final int depth;
+        private final int split;
+        private final transient TranspositionTable table;
+
+        PerftTask(ChessBoard board, int depth, int split, TranspositionTable table) {
+            this.board = board;
+            this.depth = depth;
+            this.split = split;
+            this.table = table;
+        }
+
+        @Override
+        protected Long compute() {
+            // too little work left below this node to be worth another fork
+            if (split == 0 || depth <= 2)
+                return table == null ? board.perft(depth) : board.perft(depth, table);
+
+            MoveList moves = new MoveList();
+            board.generateMoves(moves);
+
+            List<PerftTask> tasks = new ArrayList<>(moves.size());
+            for (int i = 0; i < moves.size(); i++) {
+                ChessBoard child = ChessBoard.newInstance(board);
+                child.makeMove(moves.get(i));
+                tasks.add(new PerftTask(child, depth - 1, split - 1, table));
+            }
+
+            long nodes = 0;
+            for (PerftTask task : invokeAll(tasks)) nodes += task.join();
+            return nodes;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package chess;
+
+import java.util.Arrays;
+
+/*
+ * Fixed-size hash table of position results keyed by ChessBoard.getHash(),
+ * shared by perft and the searcher.
+ *
+ * Entries live in a plain long[] as pairs { key ^ data, data } ("lockless
+ * hashing"). Readers recompute key = slot[0] ^ slot[1] and only accept the
+ * entry if it matches, so a write torn by a concurrent writer reads as a
+ * miss instead of as a wrong entry. That makes it safe to share one table
+ * between search threads without any locking.
+ *
+ * Every data word carries the search depth, the table age at store time
+ * and a valid bit in its low 15 bits; the rest is payload, either a search
+ * result (packSearch) or a perft node count (packCount). Slots come in
+ * buckets of two. A store overwrites the entry for the same key, otherwise
+ * the entry with the lowest depth, where entries from older searches
+ * count as shallower.
+ */
+public class TranspositionTable {
+    public static final int EXACT = 0;
+    public static final int LOWER = 1;  // score is at least this, search failed high
+    public static final int UPPER = 2;  // score is at most this, search failed low
+
+    public static final long NO_ENTRY = 0L;
+
+    private static final int SLOT_LONGS = 2;
+    private static final int BUCKET_SLOTS = 2;
+    private static final int AGE_MASK = 63;
+    private static final long VALID = 1L << 14;
+
+    private final long[] table;
+    private volatile int age;
+
+    public TranspositionTable(int megabytes) {
+        table = allocate(megabytes);
+    }
+
+    // the entry count is rounded down to a power of two that fits in `megabytes`
+    private static long[] allocate(int megabytes) {
+        long bytes = Math.max(1, megabytes) * 1024L * 1024L;
+        long buckets = Long.highestOneBit(bytes / (Long.BYTES * SLOT_LONGS * BUCKET_SLOTS));
+        buckets = Math.min(buckets, 1L << 26);
+
+        return new long[(int) buckets * SLOT_LONGS * BUCKET_SLOTS];
+    }
+
+    public void clear() {
+        Arrays.fill(table, 0L);
+    }
+
+    public int capacity() {
+        return table.length / SLOT_LONGS;
+    }
+
+    // call at the start of each search so entries from earlier ones get replaced first
+    public void newSearch() {
+        age = (age + 1) & AGE_MASK;
+    }
+
+    // the data stored for `key`, or NO_ENTRY
+    public long probe(long key) {
+        long[] t = table;
+        int index = bucketIndex(key, t);
+
+        for (int slot = 0; slot < BUCKET_SLOTS; slot++, index += SLOT_LONGS) {
+            long data = t[index + 1];
+            if ((t[index] ^ data) == key && (data & VALID) != 0) return data;
+        }
+        return NO_ENTRY;
+    }
+
+    // `data` from one of the pack methods
+    public void store(long key, long data) {
+        long[] t = table;
+        int index = bucketIndex(key, t);
+        int replace = index;
+        int lowest = Integer.MAX_VALUE;
+
+        for (int slot = 0; slot < BUCKET_SLOTS; slot++, index += SLOT_LONGS) {
+            long old = t[index + 1];
+
+            if ((t[index] ^ old) == key || (old & VALID) == 0) {
+                replace = index;
+                break;
+            }
+            int worth = depth(old) - 8 * ((age - age(old)) & AGE_MASK);
+            if (worth < lowest) {
+                lowest = worth;
+                replace = index;
+            }
+        }
+        t[replace] = key ^ data;
+        t[replace + 1] = data;
+    }
+
+    /*
+     * Search results: the best move (a Move int), its score, the depth it
+     * was searched to and which kind of bound the score is.
+     */
+    public long packSearch(int move, int score, int depth, int bound) {
+        return header(depth)
+                | ((long) (move & 0xFFFFFF) << 15)
+                | ((long) (score & 0xFFFF) << 39)
+                | ((long) bound << 55);
+    }
+
+    public static int move(long data) {
+        return (int) (data >>> 15) & 0xFFFFFF;
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> 39);
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> 55) & 3;
+    }
+
+    // perft node counts, up to 2^49
+    public long packCount(long count, int depth) {
+        return header(depth) | (count << 15);
+    }
+
+    public static long count(long data) {
+        return data >>> 15;
+    }
+
+    public static int depth(long data) {
+        return (int) data & 0xFF;
+    }
+
+    private static int age(long data) {
+        return (int) (data >>> 8) & AGE_MASK;
+    }
+
+    private long header(int depth) {
+        return VALID | ((long) age << 8) | (depth & 0xFF);
+    }
+
+    private int bucketIndex(long key, long[] t) {
+        int buckets = t.length / (SLOT_LONGS * BUCKET_SLOTS);
+        return ((int) key & (buckets - 1)) * SLOT_LONGS * BUCKET_SLOTS;
+    }
+}
@@ -0,0 +1,56 @@
+package chess;
+
+/*
+ * Random keys for Zobrist position hashing. A position's key is the XOR
+ * of the keys of everything in it: each piece on its square, the castling
+ * rights, the file of the en passant square and the side to move (only
+ * XORed in when black moves). ChessBoard keeps its key up to date by
+ * XORing keys in and out as it changes.
+ *
+ * The keys come from a fixed seed so hashes are stable between runs and
+ * can be stored.
+ */
+public final class Zobrist {
+    private static final long[][] PIECES = new long[2 * ChessConstants.PIECE_TYPES][64];
+    private static final long[] CASTLING = new long[ChessConstants.ALL_CASTLING + 1];
+    private static final long[] EN_PASSANT_FILE = new long[ChessConstants.MAX_COL];
+    private static final long BLACK_TO_MOVE;
+
+    private static long seed = 0x7A3F61C2D9B04E85L;
+
+    static {
+        for (long[] keys : PIECES) {
+            for (int square = 0; square < 64; square++) keys[square] = nextRandom();
+        }
+        // no rights at all hashes as 0, like no en passant square
+        for (int rights = 1; rights < CASTLING.length; rights++) CASTLING[rights] = nextRandom();
+        for (int file = 0; file < EN_PASSANT_FILE.length; file++) EN_PASSANT_FILE[file] = nextRandom();
+        BLACK_TO_MOVE = nextRandom();
+    }
+
+    private Zobrist() {}
+
+    public static long piece(boolean white, int type, int square) {
+        return PIECES[white ? type : type + ChessConstants.PIECE_TYPES][square];
+    }
+
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    public static long enPassant(int square) {
+        return square == Bitboard.NO_SQUARE ? 0L : EN_PASSANT_FILE[Bitboard.col(square)];
+    }
+
+    public static long blackToMove() {
+        return BLACK_TO_MOVE;
+    }
+
+    // splitmix64
+    private static long nextRandom() {
+        long z = (seed += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,211 @@
+package chess.archive;
+
+import chess.Bitboard;
+import chess.ChessBoard;
+import chess.ChessConstants;
+import chess.ChessPiece;
+import chess.Move;
+import chess.pgn.PgnGame;
+import chess.pgn.San;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Games stored as binary records and read straight from a memory-mapped
+ * file. Any game can be looked up by number without touching the others,
+ * and its moves come back as Move ints without any text being parsed or
+ * legal moves generated.
+ *
+ *   header   magic, version
+ *   games    per game: result (byte), ply count (short), tag bytes (short),
+ *            the tags as length prefixed UTF-8 name/value pairs, then one
+ *            short per ply: from | to << 6 | promotion piece << 12
+ *   index    the offset of every game (int)
+ *   trailer  game count, index offset, magic
+ *
+ * All numbers are big-endian. Offsets are ints, so an archive is at most
+ * 2 GB; larger collections are split over several files.
+ *
+ * Reads only use absolute positions, so one archive can be shared by any
+ * number of threads.
+ */
+public class GameArchive implements Closeable {
+    static final int MAGIC = 0x4A434741; // "JCGA"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int GAME_HEADER_SIZE = 5;
+    private static final int TRAILER_SIZE = 12;
+    private static final String[] RESULTS = {"*", "1-0", "0-1", "1/2-1/2"};
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int index;
+
+    public GameArchive(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("Archive larger than 2 GB: " + path);
+            if (size < HEADER_SIZE + TRAILER_SIZE) throw new IOException("Not a game archive: " + path);
+
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        int end = buffer.limit();
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(end - 4) != MAGIC) {
+            throw new IOException("Not a game archive, or not closed: " + path);
+        }
+        if (buffer.getInt(4) != VERSION) throw new IOException("Unknown archive version " + buffer.getInt(4));
+
+        count = buffer.getInt(end - TRAILER_SIZE);
+        index = buffer.getInt(end - 8);
+        if (count < 0 || index < HEADER_SIZE || index + 4L * count != end - TRAILER_SIZE) {
+            throw new IOException("Corrupt archive index: " + path);
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public String getResult(int game) {
+        return RESULTS[buffer.get(offset(game))];
+    }
+
+    public int getPlyCount(int game) {
+        return Short.toUnsignedInt(buffer.getShort(offset(game) + 1));
+    }
+
+    public Map<String, String> getTags(int game) {
+        int at = offset(game);
+        int end = at + GAME_HEADER_SIZE + Short.toUnsignedInt(buffer.getShort(at + 3));
+        Map<String, String> tags = new LinkedHashMap<>();
+
+        for (at += GAME_HEADER_SIZE; at < end; ) {
+            String name = string(at);
+            at += 1 + Byte.toUnsignedInt(buffer.get(at));
+            String value = string(at);
+            at += 1 + Byte.toUnsignedInt(buffer.get(at));
+            tags.put(name, value);
+        }
+        return tags;
+    }
+
+    // one tag, null if the game does not have it
+    public String getTag(int game, String name) {
+        return getTags(game).get(name);
+    }
+
+    /*
+     * Sets up `board` at the game's starting position and plays its moves
+     * on it. Returns the moves as Move ints.
+     */
+    public int[] replay(int game, ChessBoard board) {
+        int at = offset(game);
+        int plies = Short.toUnsignedInt(buffer.getShort(at + 1));
+        int movesAt = at + GAME_HEADER_SIZE + Short.toUnsignedInt(buffer.getShort(at + 3));
+
+        String fen = getTag(game, "FEN");
+        if (fen != null) board.loadFen(fen);
+        else ChessBoard.startpos(board);
+
+        int[] moves = new int[plies];
+        // the moves were legal when written, an impossible one means the file is damaged
+        for (int i = 0; i < plies; i++) {
+            int move = decodeMove(board, buffer.getShort(movesAt + 2 * i));
+            if (move == Move.NONE) throw new IllegalStateException("Corrupt game " + game + " at ply " + (i + 1));
+            board.makeMove(move);
+            moves[i] = move;
+        }
+        return moves;
+    }
+
+    // the game as PGN, its moves in SAN
+    public PgnGame toPgn(int game, ChessBoard board) {
+        Map<String, String> tags = getTags(game);
+        int[] moves = replay(game, board);
+        for (int i = moves.length - 1; i >= 0; i--) board.unmakeMove();
+
+        List<String> san = new ArrayList<>(moves.length);
+        for (int move : moves) {
+            san.add(San.toSan(board, move));
+            board.makeMove(move);
+        }
+        String result = getResult(game);
+        tags.put("Result", result);
+        return new PgnGame(tags, san, result);
+    }
+
+    // the mapping goes when the archive is no longer referenced
+    @Override
+    public void close() {}
+
+    private int offset(int game) {
+        if (game < 0 || game >= count) throw new IndexOutOfBoundsException("Game " + game + " of " + count);
+        return buffer.getInt(index + 4 * game);
+    }
+
+    private String string(int at) {
+        int length = Byte.toUnsignedInt(buffer.get(at));
+        byte[] bytes = new byte[length];
+        buffer.get(at + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static int encodeResult(String result) {
+        for (int i = 0; i < RESULTS.length; i++) {
+            if (RESULTS[i].equals(result)) return i;
+        }
+        return 0;
+    }
+
+    // promotion pieces keep their type, KNIGHT to QUEEN, 0 (PAWN) means no promotion
+    static int encodeMove(int move) {
+        int promotion = Move.isPromotion(move) ? Move.promotion(move) : ChessConstants.PAWN;
+        return Move.from(move) | Move.to(move) << 6 | promotion << 12;
+    }
+
+    /*
+     * The move `code` stands for on `board`. The archive only holds moves
+     * that were legal when it was written, so the move is rebuilt from the
+     * pieces on its squares instead of being looked up among the legal
+     * moves; only codes that cannot be a move of the side to move at all
+     * give NONE.
+     */
+    static int decodeMove(ChessBoard board, int code) {
+        int from = code & 63;
+        int to = (code >>> 6) & 63;
+        int promotion = (code >>> 12) & 7;
+
+        ChessPiece piece = board.getPiece(from);
+        ChessPiece target = board.getPiece(to);
+        if (piece == null || piece.isWhite() != board.isWhiteToMove()
+                || (target != null && target.isWhite() == piece.isWhite())) return Move.NONE;
+
+        int type = piece.getType();
+        int captured = target == null ? Move.NO_PIECE : target.getType();
+        int flags = 0;
+
+        if (type == ChessConstants.PAWN) {
+            // a pawn only moves sideways onto an empty square en passant
+            if (target == null && Bitboard.col(from) != Bitboard.col(to)) {
+                captured = ChessConstants.PAWN;
+                flags = Move.EN_PASSANT;
+            } else if (Math.abs(to - from) == 16) {
+                flags = Move.DOUBLE_PUSH;
+            }
+        } else if (type == ChessConstants.KING && Math.abs(to - from) == 2) {
+            flags = Move.CASTLE;
+        }
+        return Move.encode(from, to, type, captured, promotion == ChessConstants.PAWN ? Move.NO_PIECE : promotion, flags);
+    }
+}
@@ -0,0 +1,107 @@
+package chess.archive;
+
+import chess.ChessBoard;
+import chess.pgn.PgnGame;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+/*
+ * Writes games in the GameArchive format, see there for the layout. The
+ * index of game offsets is kept in memory and written by close(), an
+ * archive that was not closed cannot be read.
+ */
+public class GameArchiveWriter implements Closeable {
+    private final DataOutputStream out;
+    private final ChessBoard board = new ChessBoard();
+    private int[] offsets = new int[1024];
+    private int count;
+    private long position;
+
+    public GameArchiveWriter(Path path) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+        out.writeInt(GameArchive.MAGIC);
+        out.writeInt(GameArchive.VERSION);
+        position = GameArchive.HEADER_SIZE;
+    }
+
+    // games written so far
+    public int size() {
+        return count;
+    }
+
+    /*
+     * Adds a game read from PGN, replaying it to turn its SAN into moves.
+     * Throws IllegalArgumentException, and writes nothing, if a move is
+     * not legal.
+     */
+    public void add(PgnGame game) throws IOException {
+        add(game.getTags(), game.getResult(), game.replay(board));
+    }
+
+    /*
+     * Adds a game from its tags, result and moves, the moves played from
+     * the FEN tag if there is one, otherwise from the start position.
+     */
+    public void add(Map<String, String> tags, String result, int[] moves) throws IOException {
+        if (moves.length > 0xFFFF) throw new IllegalArgumentException("Too many moves: " + moves.length);
+        // room for the largest tags, the moves, and the index and trailer after them
+        long needed = GameArchive.GAME_HEADER_SIZE + 0xFFFF + 2L * moves.length + 4L * (count + 1) + 12;
+        if (position + needed > Integer.MAX_VALUE) {
+            throw new IOException("Archive full");
+        }
+
+        byte[] tagBytes = encodeTags(tags);
+        if (count == offsets.length) offsets = Arrays.copyOf(offsets, count * 2);
+        offsets[count++] = (int) position;
+
+        out.writeByte(GameArchive.encodeResult(result));
+        out.writeShort(moves.length);
+        out.writeShort(tagBytes.length);
+        out.write(tagBytes);
+        for (int move : moves) out.writeShort(GameArchive.encodeMove(move));
+
+        position += GameArchive.GAME_HEADER_SIZE + tagBytes.length + 2L * moves.length;
+    }
+
+    // the index, then the trailer pointing at it
+    @Override
+    public void close() throws IOException {
+        long index = position;
+        for (int i = 0; i < count; i++) out.writeInt(offsets[i]);
+        out.writeInt(count);
+        out.writeInt((int) index);
+        out.writeInt(GameArchive.MAGIC);
+        out.close();
+    }
+
+    // pairs of length prefixed UTF-8 strings cut at 255 bytes, the result has a field of its own
+    private static byte[] encodeTags(Map<String, String> tags) {
+        byte[] bytes = new byte[64];
+        int length = 0;
+
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            if (tag.getKey().equals("Result")) continue;
+
+            for (String s : new String[] {tag.getKey(), tag.getValue()}) {
+                byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+                int n = Math.min(utf8.length, 0xFF);
+                // a cut must not split a character, so back off continuation bytes (10xxxxxx)
+                if (n < utf8.length) while (n > 0 && (utf8[n] & 0xC0) == 0x80) n--;
+                if (length + 1 + n > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + 1 + n));
+                bytes[length++] = (byte) n;
+                System.arraycopy(utf8, 0, bytes, length, n);
+                length += n;
+            }
+        }
+        if (length > 0xFFFF) throw new IllegalArgumentException("Tags too long");
+        return Arrays.copyOf(bytes, length);
+    }
+}
@@ -0,0 +1,190 @@
+package chess.archive;
+
+import chess.ChessBoard;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Finds the games of a GameArchive that reached a position, looked up by
+ * the position's Zobrist hash (see key()), along with how those games
+ * ended. Built by PositionIndexBuilder, read from a memory-mapped
+ * file:
+ *
+ *   header    magic, version, key count
+ *   fence     for each value of a key's top 16 bits the number of the
+ *             first key with it, and the key count at the end
+ *   keys      sorted by unsigned hash, 40 bytes each: hash, offset of its
+ *             postings, posting count, games, white wins, draws, black
+ *             wins, padding
+ *   postings  per posting the game as a varint delta to the one before,
+ *             then the ply as a varint
+ *
+ * A lookup reads the fence slot and binary searches the few keys in it,
+ * so it costs a handful of page reads however many positions there are.
+ * Files may exceed 2 GB, they are mapped in 1 GB pieces.
+ */
+public class PositionIndex implements Closeable {
+    static final int MAGIC = 0x4A435049; // "JCPI"
+    static final int VERSION = 1;
+    static final int FENCE_SIZE = 1 << 16;
+    private static final int HEADER_SIZE = 16;
+    private static final int KEY_SIZE = 40;
+    private static final int KEYS_PER_SEGMENT = (1 << 30) / KEY_SIZE;
+    private static final int POSTINGS_SEGMENT_SHIFT = 30;
+
+    private final long keyCount;
+    private final long[] fence = new long[FENCE_SIZE + 1];
+    private final MappedByteBuffer[] keys;
+    private final MappedByteBuffer[] postings;
+
+    // the number of positions that matched, the games they came from, and how those games ended
+    public record Stats(int positions, int games, int whiteWins, int draws, int blackWins) {
+        public static final Stats NONE = new Stats(0, 0, 0, 0, 0);
+    }
+
+    // the position was reached after `ply` half moves of `game` in the archive
+    public record Posting(int game, int ply) {}
+
+    public PositionIndex(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long keysStart = HEADER_SIZE + 8L * fence.length;
+            if (size < keysStart) throw new IOException("Not a position index: " + path);
+
+            MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, keysStart);
+            if (head.getInt(0) != MAGIC) throw new IOException("Not a position index: " + path);
+            if (head.getInt(4) != VERSION) throw new IOException("Unknown index version " + head.getInt(4));
+
+            keyCount = head.getLong(8);
+            for (int i = 0; i < fence.length; i++) fence[i] = head.getLong(HEADER_SIZE + 8 * i);
+
+            long postingsStart = keysStart + keyCount * KEY_SIZE;
+            if (keyCount < 0 || postingsStart > size || fence[FENCE_SIZE] != keyCount) {
+                throw new IOException("Corrupt position index: " + path);
+            }
+
+            keys = new MappedByteBuffer[(int) ((keyCount + KEYS_PER_SEGMENT - 1) / KEYS_PER_SEGMENT)];
+            for (int i = 0; i < keys.length; i++) {
+                long first = (long) i * KEYS_PER_SEGMENT;
+                long n = Math.min(KEYS_PER_SEGMENT, keyCount - first);
+                keys[i] = channel.map(FileChannel.MapMode.READ_ONLY, keysStart + first * KEY_SIZE, n * KEY_SIZE);
+            }
+
+            long postingsSize = size - postingsStart;
+            postings = new MappedByteBuffer[(int) ((postingsSize + (1L << POSTINGS_SEGMENT_SHIFT) - 1) >>> POSTINGS_SEGMENT_SHIFT)];
+            for (int i = 0; i < postings.length; i++) {
+                long first = (long) i << POSTINGS_SEGMENT_SHIFT;
+                long n = Math.min(1L << POSTINGS_SEGMENT_SHIFT, postingsSize - first);
+                postings[i] = channel.map(FileChannel.MapMode.READ_ONLY, postingsStart + first, n);
+            }
+        }
+    }
+
+    // distinct positions in the index
+    public long size() {
+        return keyCount;
+    }
+
+    // the hash a position is indexed under, see ChessBoard.getPositionKey
+    public static long key(ChessBoard board) {
+        return board.getPositionKey();
+    }
+
+    public Stats stats(ChessBoard board) {
+        return stats(key(board));
+    }
+
+    // `hash` as given by key()
+    public Stats stats(long hash) {
+        long key = find(hash);
+        if (key < 0) return Stats.NONE;
+
+        MappedByteBuffer segment = keys[(int) (key / KEYS_PER_SEGMENT)];
+        int at = (int) (key % KEYS_PER_SEGMENT) * KEY_SIZE;
+        return new Stats(segment.getInt(at + 16), segment.getInt(at + 20),
+                segment.getInt(at + 24), segment.getInt(at + 28), segment.getInt(at + 32));
+    }
+
+    public List<Posting> postings(ChessBoard board) {
+        return postings(key(board));
+    }
+
+    // every time a game of the archive reached the position, by game and ply
+    public List<Posting> postings(long hash) {
+        long key = find(hash);
+        if (key < 0) return List.of();
+
+        MappedByteBuffer segment = keys[(int) (key / KEYS_PER_SEGMENT)];
+        int at = (int) (key % KEYS_PER_SEGMENT) * KEY_SIZE;
+        long offset = segment.getLong(at + 8);
+        int count = segment.getInt(at + 16);
+
+        List<Posting> result = new ArrayList<>(count);
+        int game = 0;
+        for (int i = 0; i < count; i++) {
+            long value = 0;
+            for (int part = 0; part < 2; part++) {
+                int shift = 0;
+                int b;
+                value = 0;
+                do {
+                    b = postingByte(offset++);
+                    value |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+
+                if (part == 0) game += (int) value;
+            }
+            result.add(new Posting(game, (int) value));
+        }
+        return result;
+    }
+
+    // the mappings go when the index is no longer referenced
+    @Override
+    public void close() {}
+
+    // number of the key equal to `hash`, or -1
+    private long find(long hash) {
+        int prefix = (int) (hash >>> 48);
+        long lo = fence[prefix];
+        long hi = fence[prefix + 1] - 1;
+
+        while (lo <= hi) {
+            long mid = (lo + hi) >>> 1;
+            int c = Long.compareUnsigned(keyAt(mid), hash);
+            if (c == 0) return mid;
+            if (c < 0) lo = mid + 1;
+            else hi = mid - 1;
+        }
+        return -1;
+    }
+
+    private long keyAt(long n) {
+        return keys[(int) (n / KEYS_PER_SEGMENT)].getLong((int) (n % KEYS_PER_SEGMENT) * KEY_SIZE);
+    }
+
+    private int postingByte(long offset) {
+        return Byte.toUnsignedInt(postings[(int) (offset >>> POSTINGS_SEGMENT_SHIFT)]
+                .get((int) (offset & ((1L << POSTINGS_SEGMENT_SHIFT) - 1))));
+    }
+
+    static long posting(int game, int ply) {
+        return (long) game << 16 | ply;
+    }
+
+    static int game(long posting) {
+        return (int) (posting >>> 16);
+    }
+
+    static int ply(long posting) {
+        return (int) (posting & 0xFFFF);
+    }
+}
@@ -0,0 +1,259 @@
+package chess.archive;
+
+import chess.ChessBoard;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/*
+ * Builds a PositionIndex from a GameArchive. Every game is replayed and
+ * each position it passes through becomes a (hash, game, ply) entry.
+ * Entries are gathered in fixed size runs that are sorted in memory and
+ * spilled to temporary files, which are merged into the index at the
+ * end, so the number of positions is bounded by disk, not heap.
+ */
+public class PositionIndexBuilder {
+    private static final int DEFAULT_RUN_ENTRIES = 1 << 22;
+
+    private final Path tempDir;
+    private final int runEntries;
+    private int maxPly = Integer.MAX_VALUE;
+
+    public PositionIndexBuilder(Path tempDir) {
+        this(tempDir, DEFAULT_RUN_ENTRIES);
+    }
+
+    // a run of `runEntries` entries takes 32 bytes each on the heap while it is sorted
+    public PositionIndexBuilder(Path tempDir, int runEntries) {
+        this.tempDir = tempDir;
+        this.runEntries = Math.max(1024, runEntries);
+    }
+
+    // only positions up to this ply are indexed, the start position being ply 0
+    public void setMaxPly(int maxPly) {
+        this.maxPly = Math.max(0, maxPly);
+    }
+
+    public void build(GameArchive archive, Path out) throws IOException {
+        List<Path> runs = new ArrayList<>();
+        byte[] results = new byte[archive.size()];
+
+        try {
+            long[] keys = new long[runEntries];
+            long[] postings = new long[runEntries];
+            int n = 0;
+            ChessBoard board = new ChessBoard();
+
+            for (int game = 0; game < archive.size(); game++) {
+                results[game] = (byte) GameArchive.encodeResult(archive.getResult(game));
+                int[] moves = archive.replay(game, board);
+                int plies = Math.min(moves.length, maxPly);
+
+                // replay left the board at the end, walk back to the start
+                for (int i = moves.length; i > 0; i--) board.unmakeMove();
+
+                for (int ply = 0; ply <= plies; ply++) {
+                    if (n == runEntries) {
+                        runs.add(spill(keys, postings, n));
+                        n = 0;
+                    }
+                    keys[n] = PositionIndex.key(board);
+                    postings[n++] = PositionIndex.posting(game, ply);
+                    if (ply < plies) board.makeMove(moves[ply]);
+                }
+            }
+            if (n > 0 || runs.isEmpty()) runs.add(spill(keys, postings, n));
+
+            merge(runs, results, out);
+        } finally {
+            for (Path run : runs) Files.deleteIfExists(run);
+        }
+    }
+
+    private Path spill(long[] keys, long[] postings, int n) throws IOException {
+        sort(keys, postings, n);
+
+        Path run = Files.createTempFile(tempDir, "positions", ".run");
+        try (DataOutputStream data = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16))) {
+            for (int i = 0; i < n; i++) {
+                data.writeLong(keys[i]);
+                data.writeLong(postings[i]);
+            }
+        }
+        return run;
+    }
+
+    /*
+     * LSD radix sort on the unsigned key, 16 bits a pass. It is stable, so
+     * postings of one key stay in the order they were added, by game and ply.
+     */
+    private static void sort(long[] keys, long[] postings, int n) {
+        long[] keysTmp = new long[n];
+        long[] postingsTmp = new long[n];
+        int[] counts = new int[1 << 16];
+
+        for (int shift = 0; shift < 64; shift += 16) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < n; i++) counts[(int) (keys[i] >>> shift) & 0xFFFF]++;
+
+            int sum = 0;
+            for (int d = 0; d < counts.length; d++) {
+                int c = counts[d];
+                counts[d] = sum;
+                sum += c;
+            }
+            for (int i = 0; i < n; i++) {
+                int at = counts[(int) (keys[i] >>> shift) & 0xFFFF]++;
+                keysTmp[at] = keys[i];
+                postingsTmp[at] = postings[i];
+            }
+            System.arraycopy(keysTmp, 0, keys, 0, n);
+            System.arraycopy(postingsTmp, 0, postings, 0, n);
+        }
+    }
+
+    private static final class Run {
+        final DataInputStream in;
+        final int order;
+        long key;
+        long posting;
+
+        Run(Path path, int order) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16));
+            this.order = order;
+        }
+
+        boolean next() throws IOException {
+            try {
+                key = in.readLong();
+                posting = in.readLong();
+                return true;
+            } catch (EOFException e) {
+                in.close();
+                return false;
+            }
+        }
+    }
+
+    /*
+     * Merges the runs into the key table and the posting lists, written to
+     * temporary files first since the header needs the final key count.
+     */
+    private void merge(List<Path> runs, byte[] results, Path out) throws IOException {
+        Path keysFile = Files.createTempFile(tempDir, "positions", ".keys");
+        Path postingsFile = Files.createTempFile(tempDir, "positions", ".postings");
+        List<Run> open = new ArrayList<>();
+
+        try {
+            // equal keys come out in run order, which keeps their postings sorted
+            PriorityQueue<Run> queue = new PriorityQueue<>((a, b) -> {
+                int c = Long.compareUnsigned(a.key, b.key);
+                return c != 0 ? c : Integer.compare(a.order, b.order);
+            });
+            for (int i = 0; i < runs.size(); i++) {
+                Run run = new Run(runs.get(i), i);
+                open.add(run);
+                if (run.next()) queue.add(run);
+            }
+
+            long[] fence = new long[PositionIndex.FENCE_SIZE + 1];
+            long keyCount = 0;
+
+            try (DataOutputStream keys = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(keysFile), 1 << 16));
+                 DataOutputStream postings = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(postingsFile), 1 << 16))) {
+                long postingsAt = 0;
+
+                while (!queue.isEmpty()) {
+                    long key = queue.peek().key;
+                    long start = postingsAt;
+                    int count = 0, games = 0, whiteWins = 0, draws = 0, blackWins = 0;
+                    int lastGame = -1;
+
+                    while (!queue.isEmpty() && queue.peek().key == key) {
+                        Run run = queue.poll();
+                        int game = PositionIndex.game(run.posting);
+
+                        postingsAt += writeVarint(postings, game - Math.max(lastGame, 0));
+                        postingsAt += writeVarint(postings, PositionIndex.ply(run.posting));
+                        count++;
+
+                        // a game that comes back to the position counts once in the stats
+                        if (game != lastGame) {
+                            games++;
+                            switch (results[game]) {
+                                case 1 -> whiteWins++;
+                                case 2 -> blackWins++;
+                                case 3 -> draws++;
+                                default -> {}
+                            }
+                        }
+                        lastGame = game;
+
+                        if (run.next()) queue.add(run);
+                    }
+
+                    keys.writeLong(key);
+                    keys.writeLong(start);
+                    keys.writeInt(count);
+                    keys.writeInt(games);
+                    keys.writeInt(whiteWins);
+                    keys.writeInt(draws);
+                    keys.writeInt(blackWins);
+                    keys.writeInt(0);
+
+                    fence[(int) (key >>> 48) + 1]++;
+                    keyCount++;
+                }
+            }
+
+            // prefix counts to the index of the first key of each prefix
+            for (int i = 1; i < fence.length; i++) fence[i] += fence[i - 1];
+
+            try (DataOutputStream header = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(out), 1 << 16))) {
+                header.writeInt(PositionIndex.MAGIC);
+                header.writeInt(PositionIndex.VERSION);
+                header.writeLong(keyCount);
+                for (long f : fence) header.writeLong(f);
+            }
+            try (FileChannel target = FileChannel.open(out, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                append(keysFile, target);
+                append(postingsFile, target);
+            }
+        } finally {
+            for (Run run : open) run.in.close();
+            Files.deleteIfExists(keysFile);
+            Files.deleteIfExists(postingsFile);
+        }
+    }
+
+    private static void append(Path from, FileChannel target) throws IOException {
+        try (FileChannel source = FileChannel.open(from, StandardOpenOption.READ)) {
+            long size = source.size();
+            for (long done = 0; done < size; ) done += source.transferTo(done, size - done, target);
+        }
+    }
+
+    // 7 bits a byte, low bits first, the high bit set on all but the last byte
+    private static int writeVarint(DataOutputStream out, int value) throws IOException {
+        int bytes = 1;
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+            bytes++;
+        }
+        out.writeByte(value);
+        return bytes;
+    }
+}
@@ -0,0 +1,150 @@
+package chess.book;
+
+import chess.Bitboard;
+import chess.ChessBoard;
+import chess.ChessConstants;
+import chess.Move;
+import chess.MoveList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/*
+ * An opening book in the Polyglot .bin format, read from a memory-mapped
+ * file. The file is a list of 16 byte big-endian entries sorted by key:
+ *
+ *   key     Polyglot hash of the position (u64), see PolyglotKeys
+ *   move    to file, to row, from file, from row, promotion, 3 bits each
+ *           from the low end, rows counted from rank 1 and promotion
+ *           going none, knight, bishop, rook, queen (u16)
+ *   weight  how often the move should be played, relative to the others (u16)
+ *   learn   left to the tools that write books (u32)
+ *
+ * A position is found by binary search on the key, so a probe costs a few
+ * page reads however large the book is. Reads only use absolute positions,
+ * one book can be shared by any number of threads.
+ */
+public class PolyglotBook implements Closeable {
+    private static final int ENTRY_SIZE = 16;
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+
+    // a book move for the position, with its weight and learn value
+    public record Entry(int move, int weight, int learn) {}
+
+    public PolyglotBook(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("Book larger than 2 GB: " + path);
+            if (size % ENTRY_SIZE != 0) throw new IOException("Not a Polyglot book: " + path);
+
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        count = buffer.limit() / ENTRY_SIZE;
+    }
+
+    // entries in the book, for all positions
+    public int size() {
+        return count;
+    }
+
+    /*
+     * The book moves for the position on `board` in file order, which is
+     * usually by weight. Entries whose move is not legal there, from a
+     * hash collision or a damaged book, are left out.
+     */
+    public List<Entry> entries(ChessBoard board) {
+        long key = PolyglotKeys.key(board);
+        List<Entry> entries = new ArrayList<>();
+
+        for (int i = first(key); i < count && buffer.getLong(i * ENTRY_SIZE) == key; i++) {
+            int at = i * ENTRY_SIZE;
+            int move = decodeMove(board, Short.toUnsignedInt(buffer.getShort(at + 8)));
+            if (move != Move.NONE) {
+                entries.add(new Entry(move, Short.toUnsignedInt(buffer.getShort(at + 10)), buffer.getInt(at + 12)));
+            }
+        }
+        return entries;
+    }
+
+    // one of the book moves, chosen with a chance in proportion to its weight, or NONE when out of book
+    public int pick(ChessBoard board, RandomGenerator random) {
+        List<Entry> entries = entries(board);
+        long total = 0;
+        for (Entry entry : entries) total += entry.weight();
+        if (total == 0) return Move.NONE;
+
+        long r = random.nextLong(total);
+        for (Entry entry : entries) {
+            r -= entry.weight();
+            if (r < 0) return entry.move();
+        }
+        return Move.NONE;
+    }
+
+    // the book move with the highest weight, or NONE when out of book
+    public int best(ChessBoard board) {
+        int best = Move.NONE;
+        int weight = 0;
+        for (Entry entry : entries(board)) {
+            if (entry.weight() > weight) {
+                best = entry.move();
+                weight = entry.weight();
+            }
+        }
+        return best;
+    }
+
+    // the mapping goes when the book is no longer referenced
+    @Override
+    public void close() {}
+
+    // number of the first entry with a key not below `key`, unsigned
+    private int first(long key) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Long.compareUnsigned(buffer.getLong(mid * ENTRY_SIZE), key) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /*
+     * The legal move on `board` that `code` stands for, or NONE. Polyglot
+     * writes castling as the king taking its own rook, e1h1 for e1g1.
+     */
+    static int decodeMove(ChessBoard board, int code) {
+        int toCol = code & 7;
+        int toRow = 7 - ((code >>> 3) & 7);
+        int fromCol = (code >>> 6) & 7;
+        int fromRow = 7 - ((code >>> 9) & 7);
+        int promotion = (code >>> 12) & 7;
+
+        int from = Bitboard.square(fromRow, fromCol);
+        int to = Bitboard.square(toRow, toCol);
+        if (Bitboard.contains(board.getPieces(board.isWhiteToMove(), ChessConstants.KING), from)
+                && Bitboard.contains(board.getPieces(board.isWhiteToMove(), ChessConstants.ROOK), to)) {
+            to = Bitboard.square(toRow, toCol > fromCol ? fromCol + 2 : fromCol - 2);
+        }
+
+        MoveList moves = board.legalMoves();
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (Move.from(move) == from && Move.to(move) == to
+                    && (Move.isPromotion(move) ? Move.promotion(move) == promotion : promotion == 0)) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+}
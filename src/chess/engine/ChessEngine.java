@@ -1,61 +1,104 @@
 package chess.engine;
 
-import chess.ChessBoard;
-import chess.ChessConstants;
 import chess.ChessGame;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/*
+ * An external UCI engine. One virtual thread reads everything the engine
+ * prints, parses it into UciEvents and completes the futures waiting for
+ * "uciok", "readyok" or "bestmove", so callers never block on the pipe.
+ * Listeners see every event as it arrives, "info" lines included, on the
+ * reader thread; they should be quick and must not wait for this engine.
+ */
+public class ChessEngine implements Engine, Closeable {
+    private static final long UCI_TIMEOUT_SECONDS = 10;
 
-public class ChessEngine {
-    private final String name;
-    private final List<String> options;
     private final Process process;
     private final BufferedWriter writer;
-    private final BufferedReader reader;
+    private final PositionCommand position = new PositionCommand();
+    private final List<Consumer<UciEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    private final CompletableFuture<Void> uciok = new CompletableFuture<>();
+    private final Queue<CompletableFuture<Boolean>> readyok = new ConcurrentLinkedQueue<>();
+    // the search asked for last, and the one sent to the engine, which can be behind it
+    private Search search;
+    private volatile Search active;
+
+    // written by the reader thread before `uciok` completes
+    private final List<String> options = new ArrayList<>();
+    private String name;
+
+    /*
+     * A "go" and the info lines it has printed so far. `done` completes on
+     * its "bestmove", `result` is what the caller got and may cancel.
+     */
+    private record Search(CompletableFuture<GoResult> result, CompletableFuture<GoResult> done, List<String> info) {}
 
 
     public ChessEngine(String pathToEngine, ChessGame game) throws IOException {
         process = new ProcessBuilder(pathToEngine).start();
 
-        OutputStream pipedIn = process.getOutputStream();
-        InputStream pipedOut = process.getInputStream();
-
-        writer = new BufferedWriter(new OutputStreamWriter(pipedIn));
-        reader = new BufferedReader(new InputStreamReader(pipedOut));
+        writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
 
-        String[] tmp = new String[1];
+        Thread.ofVirtual().name("uci-reader-" + process.pid()).start(() -> read(reader));
 
         sendCommand("uci");
-        options = reader.lines()
-                .peek(f -> {
-                    if (f.startsWith("id name")) {
-                        tmp[0] = f.substring(7).stripLeading();
-                    }
-                })
-                .takeWhile(f -> !f.equals("uciok"))
-                .filter(f -> f.startsWith("option"))
-                .toList();
-
-        name = tmp[0];
+        try {
+            uciok.get(UCI_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException | InterruptedException | ExecutionException e) {
+            process.destroyForcibly();
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            throw new IOException("No uciok from " + pathToEngine, e);
+        }
     }
 
+    @Override
     public String name() {
         return name;
     }
+    @Override
     public List<String> options() {
         return options;
     }
 
+    public void addListener(Consumer<UciEvent> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<UciEvent> listener) {
+        listeners.remove(listener);
+    }
+
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    @Override
     public boolean isready() throws IOException {
-        sendCommand("isready");
+        return await(isreadyAsync());
+    }
 
-        return reader.readLine().equals("readyok");
+    public CompletableFuture<Boolean> isreadyAsync() {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        // "readyok" answers in order, so the oldest waiting future is the one it belongs to
+        readyok.add(result);
+        send("isready", result);
+        return result;
     }
 
     public final static class GoResult {
-        private List<String> info;
-        private String bestmove;
+        private final List<String> info;
+        private final String bestmove;
+
+        public GoResult(List<String> info, String bestmove) {
+            this.info = info;
+            this.bestmove = bestmove;
+        }
 
         public List<String> info() {
             return info;
@@ -65,81 +108,168 @@ public class ChessEngine {
         }
     }
 
-    public GoResult go(int movetime) throws IOException {
-        sendCommand("go movetime " + movetime);
+    @Override
+    public GoResult go(SearchLimits limits) throws IOException {
+        return await(goAsync(limits));
+    }
+
+    public CompletableFuture<GoResult> goAsync(int movetime) {
+        return goAsync(SearchLimits.movetime(movetime));
+    }
+
+    /*
+     * Starts a search and returns at once. Cancelling the future sends
+     * "stop"; the engine still answers with a "bestmove", and a search
+     * started before that answer is only sent once it has arrived. Other
+     * than that only one search runs at a time, starting another before
+     * the last one's "bestmove" is an error.
+     */
+    public synchronized CompletableFuture<GoResult> goAsync(SearchLimits limits) {
+        Search previous = search;
+        if (previous != null && !previous.done().isDone() && !previous.result().isCancelled()) {
+            throw new IllegalStateException("Search already running");
+        }
 
-        GoResult res = new GoResult();
-        
-        res.info = reader.lines()
-                .peek(f -> {
-                    if (f.startsWith("bestmove")) res.bestmove = f;
-                })
-                .takeWhile(f -> !f.startsWith("bestmove"))
-                .toList();
+        Search next = new Search(new CompletableFuture<>(), new CompletableFuture<>(), new ArrayList<>());
+        String command = limits.toCommand();
+        search = next;
 
-        return res;
+        next.result().whenComplete((r, e) -> {
+            if (next.result().isCancelled()) cancel(next);
+        });
+        next.done().whenComplete((r, e) -> {
+            if (e != null) next.result().completeExceptionally(e);
+            else next.result().complete(r);
+        });
+
+        if (previous == null) {
+            start(next, command);
+        } else {
+            previous.done().whenComplete((r, e) -> {
+                if (e != null) next.done().completeExceptionally(e);
+                else start(next, command);
+            });
+        }
+        return next.result();
     }
 
-    public void position(String moves) throws IOException {
-        sendCommand("position startpos moves " + moves);
+    @Override
+    public void stop() throws IOException {
+        sendCommand("stop");
     }
 
-    private void sendCommand(String cmd) throws IOException {
-        writer.write(cmd);
-        writer.newLine();
-        writer.flush();
+    @Override
+    public void ponderhit() throws IOException {
+        sendCommand("ponderhit");
     }
-}
 
+    private synchronized void start(Search next, String command) {
+        active = next;
+        send(command, next.done());
+        // cancelled while it waited for the search before it
+        if (next.result().isCancelled()) send("stop", next.done());
+    }
 
-class FenStringBuilder {
-    private String[] fenPosition;
-    private ChessGame game;
+    private synchronized void cancel(Search cancelled) {
+        if (active == cancelled && !cancelled.done().isDone()) send("stop", cancelled.done());
+    }
 
-    FenStringBuilder(ChessGame game) {
-        fenPosition = new String[ChessConstants.MAX_COL];
-        this.game = game;
+    // tells the engine the next position is from another game, the next position command starts over
+    public synchronized void ucinewgame() throws IOException {
+        position.clear();
+        sendCommand("ucinewgame");
+    }
 
-        for (int row = 0; row < ChessConstants.MAX_COL; row++) updateRow(row);
+    @Override
+    public synchronized void position(String fen, List<String> moves) throws IOException {
+        sendCommand(position.update(fen, moves));
     }
 
-    public void update(ChessBoard.Position oldPosition, ChessBoard.Position newPosition) {
-        updateRow(oldPosition.row());
-        if (oldPosition.row() != newPosition.row()) {
-            updateRow(newPosition.row());
+    // asks the engine to quit and kills it if it has not after a second
+    @Override
+    public void close() {
+        try {
+            sendCommand("quit");
+            if (process.waitFor(1, TimeUnit.SECONDS)) return;
+        } catch (IOException e) {
+            // the pipe is gone, so is the engine most likely
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        process.destroyForcibly();
     }
 
+    private void read(BufferedReader reader) {
+        try {
+            for (String line; (line = reader.readLine()) != null; ) {
+                if (!line.isBlank()) dispatch(UciEvent.parse(line));
+            }
+        } catch (IOException e) {
+            // same as the end of the stream, the engine is gone
+        }
 
-    public String buildFenString() {
-        return String.format("%s %s %s %s \n",
-                getFenPosition(),
-                (game.isWhiteTurn() ? "w" : "b"),
-                "KQkq",
-                (game.getBoard().hasEnPassantSquare()
-                        ? game.getBoard().getEnPassantSquare() : "-"));
-    }
-
-    private String getFenPosition() {
-        return String.join("/", fenPosition);
+        IOException gone = new IOException("Engine exited");
+        uciok.completeExceptionally(gone);
+        for (CompletableFuture<Boolean> f; (f = readyok.poll()) != null; ) f.completeExceptionally(gone);
+        Search running = active;
+        if (running != null) running.done().completeExceptionally(gone);
     }
 
-    private void updateRow(int row) {
-        int count, col;
-        StringBuilder sb = new StringBuilder(ChessConstants.MAX_COL);
+    // listeners first, so whoever waits for a result has seen the events leading to it
+    private void dispatch(UciEvent event) {
+        for (Consumer<UciEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                // one bad listener must not stop the reader, everyone waiting on it would hang
+            }
+        }
 
-        for (count = col = 0; col < ChessConstants.MAX_COL; col++) {
-            if (game.getBoard().isEmpty(row, col)) {
-                count++;
-                continue;
-            } else if (count > 0) {
-                sb.append(count);
-                count = 0;
+        switch (event) {
+            case UciEvent.Id id -> {
+                if (id.key().equals("name")) name = id.value();
+            }
+            case UciEvent.Option option -> options.add(option.line());
+            case UciEvent.UciOk ok -> uciok.complete(null);
+            case UciEvent.ReadyOk ok -> {
+                CompletableFuture<Boolean> waiting = readyok.poll();
+                if (waiting != null) waiting.complete(true);
             }
-            sb.append(game.getBoard().getPiece(row, col));
+            case UciEvent.Info info -> {
+                Search running = active;
+                if (running != null && !running.done().isDone()) running.info().add(info.line());
+            }
+            case UciEvent.BestMove best -> {
+                Search running = active;
+                if (running != null) running.done().complete(new GoResult(running.info(), best.line()));
+            }
+            case UciEvent.Other other -> {}
+        }
+    }
+
+    private void send(String cmd, CompletableFuture<?> result) {
+        try {
+            sendCommand(cmd);
+        } catch (IOException e) {
+            result.completeExceptionally(e);
         }
-        if (count > 0) sb.append(count);
+    }
 
-        fenPosition[row] = sb.toString();
+    private synchronized void sendCommand(CharSequence cmd) throws IOException {
+        writer.append(cmd);
+        writer.newLine();
+        writer.flush();
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException(e.getCause());
+        }
     }
-}
\ No newline at end of file
+}
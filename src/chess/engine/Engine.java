@@ -0,0 +1,33 @@
+package chess.engine;
+
+import java.io.IOException;
+import java.util.List;
+
+/*
+ * What the UI needs from an engine, whether it is an external UCI process
+ * (ChessEngine) or the built-in searcher (SearchEngine). Commands follow
+ * UCI: set the position as moves from a starting FEN, then search.
+ */
+public interface Engine {
+    String name();
+
+    List<String> options();
+
+    boolean isready() throws IOException;
+
+    // `moves` in coordinate notation, e.g. "e2e4", played from `fen` or the start position if it is null
+    void position(String fen, List<String> moves) throws IOException;
+
+    // searches the current position and blocks until the best move is known
+    ChessEngine.GoResult go(SearchLimits limits) throws IOException;
+
+    default ChessEngine.GoResult go(int movetime) throws IOException {
+        return go(SearchLimits.movetime(movetime));
+    }
+
+    // ends the running search early, go() then returns the best move found so far
+    void stop() throws IOException;
+
+    // the expected move was played, the pondering search goes on as a normal one
+    void ponderhit() throws IOException;
+}
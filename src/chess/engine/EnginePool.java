@@ -0,0 +1,275 @@
+package chess.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * A fixed number of processes of one UCI engine, started up front and
+ * lent out one caller at a time, so a request pays for the handshake
+ * only when the pool is created. A returned engine gets "ucinewgame" and
+ * must answer "isready" before the next caller sees it; one that died
+ * or does not answer is replaced by a fresh process in the background.
+ */
+public class EnginePool implements Closeable {
+    private static final long RESET_TIMEOUT_SECONDS = 5;
+
+    private final String path;
+    private final int size;
+    private final LinkedBlockingQueue<ChessEngine> idle = new LinkedBlockingQueue<>();
+    private final List<ChessEngine> all = new ArrayList<>();
+    private volatile boolean closed;
+
+    // processes that died and could not be started again yet
+    private final AtomicInteger missing = new AtomicInteger();
+
+    private final AtomicLong leases = new AtomicLong();
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong restarts = new AtomicLong();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    public EnginePool(String path, int size) throws IOException {
+        this.path = path;
+        this.size = Math.max(1, size);
+
+        // the handshakes are mostly waiting, so start them all at once
+        try (ExecutorService starter = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<ChessEngine>> started = new ArrayList<>(this.size);
+            for (int i = 0; i < this.size; i++) started.add(starter.submit(this::start));
+
+            IOException failed = null;
+            for (Future<ChessEngine> f : started) {
+                try {
+                    idle.add(f.get());
+                } catch (ExecutionException e) {
+                    if (failed == null) failed = new IOException("Could not start " + path, e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    if (failed == null) failed = new IOException("Interrupted starting " + path);
+                }
+            }
+            if (failed != null) {
+                // every one that did start is idle, nothing else has seen the pool yet
+                closed = true;
+                closeAll(new ArrayList<>(idle));
+                throw failed;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // waits for a free engine for as long as it takes
+    public ChessEngine lease() throws IOException, InterruptedException {
+        ChessEngine engine = lease(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        if (engine == null) throw new IOException("No engine");
+        return engine;
+    }
+
+    // a free engine, or null if none became free within `timeout`
+    public ChessEngine lease(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+        if (closed) throw new IllegalStateException("Pool closed");
+        long start = System.nanoTime();
+
+        ChessEngine engine = idle.poll();
+        if (engine == null) {
+            engine = startMissing();
+        }
+        if (engine == null) {
+            queued.incrementAndGet();
+            waiting.incrementAndGet();
+            try {
+                engine = idle.poll(timeout, unit);
+            } finally {
+                waiting.decrementAndGet();
+            }
+            if (engine == null) return null;
+        }
+
+        // it may have died while it was idle
+        if (!engine.isAlive()) {
+            remove(engine);
+            restarts.incrementAndGet();
+            try {
+                engine = start();
+            } catch (IOException e) {
+                missing.incrementAndGet();
+                throw e;
+            }
+        }
+
+        long waited = System.nanoTime() - start;
+        waitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        leases.incrementAndGet();
+        return engine;
+    }
+
+    /*
+     * Gives a leased engine back. It is reset in the background and only
+     * offered to the next caller once it has answered "isready".
+     */
+    public void release(ChessEngine engine) {
+        Thread.ofVirtual().name("engine-pool-reset").start(() -> {
+            if (closed) {
+                engine.close();
+                return;
+            }
+            try {
+                engine.ucinewgame();
+                if (engine.isreadyAsync().get(RESET_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    idle.add(engine);
+                    return;
+                }
+            } catch (IOException | ExecutionException | TimeoutException | InterruptedException e) {
+                // dead or stuck, it gets replaced below
+            }
+            engine.close();
+            remove(engine);
+            restarts.incrementAndGet();
+            try {
+                idle.add(start());
+            } catch (IOException e) {
+                missing.incrementAndGet();
+            }
+        });
+    }
+
+    public Metrics metrics() {
+        Metrics m = new Metrics();
+        m.size = size;
+        m.idle = idle.size();
+        m.waiting = waiting.get();
+        m.leases = leases.get();
+        m.queued = queued.get();
+        m.waitNanos = waitNanos.get();
+        m.maxWaitNanos = maxWaitNanos.get();
+        m.restarts = restarts.get();
+        m.missing = missing.get();
+        return m;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        List<ChessEngine> engines;
+        synchronized (all) {
+            engines = new ArrayList<>(all);
+            all.clear();
+        }
+        closeAll(engines);
+        idle.clear();
+    }
+
+    private static void closeAll(List<ChessEngine> engines) {
+        for (ChessEngine engine : engines) engine.close();
+    }
+
+    private ChessEngine start() throws IOException {
+        ChessEngine engine = new ChessEngine(path, null);
+        synchronized (all) {
+            if (!closed) {
+                all.add(engine);
+                return engine;
+            }
+        }
+        engine.close();
+        throw new IllegalStateException("Pool closed");
+    }
+
+    private void remove(ChessEngine engine) {
+        synchronized (all) {
+            all.remove(engine);
+        }
+    }
+
+    // tries to bring back one process that could not be restarted before
+    private ChessEngine startMissing() throws IOException {
+        int n;
+        do {
+            n = missing.get();
+            if (n == 0) return null;
+        } while (!missing.compareAndSet(n, n - 1));
+
+        try {
+            ChessEngine engine = start();
+            restarts.incrementAndGet();
+            return engine;
+        } catch (IOException e) {
+            missing.incrementAndGet();
+            throw e;
+        }
+    }
+
+    // a snapshot of the counters, times in nanoseconds
+    public static final class Metrics {
+        private int size;
+        private int idle;
+        private int waiting;
+        private long leases;
+        private long queued;
+        private long waitNanos;
+        private long maxWaitNanos;
+        private long restarts;
+        private int missing;
+
+        public int getSize() {
+            return size;
+        }
+
+        public int getIdle() {
+            return idle;
+        }
+
+        // callers blocked in lease() right now
+        public int getWaiting() {
+            return waiting;
+        }
+
+        public long getLeases() {
+            return leases;
+        }
+
+        // leases that found no engine free and had to wait
+        public long getQueued() {
+            return queued;
+        }
+
+        public long getWaitNanos() {
+            return waitNanos;
+        }
+
+        public long getMaxWaitNanos() {
+            return maxWaitNanos;
+        }
+
+        public long getRestarts() {
+            return restarts;
+        }
+
+        public int getMissing() {
+            return missing;
+        }
+
+        @Override
+        public String toString() {
+            double meanMillis = leases == 0 ? 0 : waitNanos / 1e6 / leases;
+            return String.format("size %d  idle %d  waiting %d  leases %d  queued %d  wait %.3f ms mean %.3f ms max  restarts %d  missing %d",
+                    size, idle, waiting, leases, queued, meanMillis, maxWaitNanos / 1e6, restarts, missing);
+        }
+    }
+}
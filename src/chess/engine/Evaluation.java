@@ -0,0 +1,102 @@
+package chess.engine;
+
+import chess.Bitboard;
+import chess.ChessBoard;
+import chess.ChessConstants;
+
+/*
+ * Static evaluation in centipawns from the point of view of the side to
+ * move: material plus piece-square tables (the "simplified evaluation
+ * function" tables). Tables are laid out like the board, rank 8 first,
+ * for white; black looks them up mirrored.
+ */
+public final class Evaluation {
+    static final int[] PIECE_VALUES = {
+            ChessConstants.PAWN_VALUE * 100,
+            ChessConstants.KNIGHT_VALUE * 100,
+            ChessConstants.BISHOP_VALUE * 100,
+            ChessConstants.ROOK_VALUE * 100,
+            ChessConstants.QUEEN_VALUE * 100,
+            0
+    };
+
+    private static final int[][] PIECE_SQUARE = {
+            { // pawn
+                      0,   0,   0,   0,   0,   0,   0,   0,
+                     50,  50,  50,  50,  50,  50,  50,  50,
+                     10,  10,  20,  30,  30,  20,  10,  10,
+                      5,   5,  10,  25,  25,  10,   5,   5,
+                      0,   0,   0,  20,  20,   0,   0,   0,
+                      5,  -5, -10,   0,   0, -10,  -5,   5,
+                      5,  10,  10, -20, -20,  10,  10,   5,
+                      0,   0,   0,   0,   0,   0,   0,   0 },
+            { // knight
+                    -50, -40, -30, -30, -30, -30, -40, -50,
+                    -40, -20,   0,   0,   0,   0, -20, -40,
+                    -30,   0,  10,  15,  15,  10,   0, -30,
+                    -30,   5,  15,  20,  20,  15,   5, -30,
+                    -30,   0,  15,  20,  20,  15,   0, -30,
+                    -30,   5,  10,  15,  15,  10,   5, -30,
+                    -40, -20,   0,   5,   5,   0, -20, -40,
+                    -50, -40, -30, -30, -30, -30, -40, -50 },
+            { // bishop
+                    -20, -10, -10, -10, -10, -10, -10, -20,
+                    -10,   0,   0,   0,   0,   0,   0, -10,
+                    -10,   0,   5,  10,  10,   5,   0, -10,
+                    -10,   5,   5,  10,  10,   5,   5, -10,
+                    -10,   0,  10,  10,  10,  10,   0, -10,
+                    -10,  10,  10,  10,  10,  10,  10, -10,
+                    -10,   5,   0,   0,   0,   0,   5, -10,
+                    -20, -10, -10, -10, -10, -10, -10, -20 },
+            { // rook
+                      0,   0,   0,   0,   0,   0,   0,   0,
+                      5,  10,  10,  10,  10,  10,  10,   5,
+                     -5,   0,   0,   0,   0,   0,   0,  -5,
+                     -5,   0,   0,   0,   0,   0,   0,  -5,
+                     -5,   0,   0,   0,   0,   0,   0,  -5,
+                     -5,   0,   0,   0,   0,   0,   0,  -5,
+                     -5,   0,   0,   0,   0,   0,   0,  -5,
+                      0,   0,   0,   5,   5,   0,   0,   0 },
+            { // queen
+                    -20, -10, -10,  -5,  -5, -10, -10, -20,
+                    -10,   0,   0,   0,   0,   0,   0, -10,
+                    -10,   0,   5,   5,   5,   5,   0, -10,
+                     -5,   0,   5,   5,   5,   5,   0,  -5,
+                      0,   0,   5,   5,   5,   5,   0,  -5,
+                    -10,   5,   5,   5,   5,   5,   0, -10,
+                    -10,   0,   5,   0,   0,   0,   0, -10,
+                    -20, -10, -10,  -5,  -5, -10, -10, -20 },
+            { // king
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -20, -30, -30, -40, -40, -30, -30, -20,
+                    -10, -20, -20, -20, -20, -20, -20, -10,
+                     20,  20,   0,   0,   0,   0,  20,  20,
+                     20,  30,  10,   0,   0,  10,  30,  20 }
+    };
+
+    private Evaluation() {}
+
+    public static int evaluate(ChessBoard board) {
+        int score = side(board, true) - side(board, false);
+
+        return board.isWhiteToMove() ? score : -score;
+    }
+
+    private static int side(ChessBoard board, boolean white) {
+        int score = 0;
+
+        for (int type = ChessConstants.PAWN; type <= ChessConstants.KING; type++) {
+            int[] table = PIECE_SQUARE[type];
+
+            for (long bb = board.getPieces(white, type); bb != Bitboard.EMPTY; bb = Bitboard.clearFirst(bb)) {
+                int square = Bitboard.first(bb);
+                // flipping the row mirrors the table for black
+                score += PIECE_VALUES[type] + table[white ? square : square ^ 56];
+            }
+        }
+        return score;
+    }
+}
@@ -0,0 +1,103 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessConstants;
+import chess.FenExporter;
+import chess.Move;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Builds the UCI "position" command for one engine conversation without
+ * starting over every move. It remembers the moves already sent and only
+ * appends new ones to a command buffer that lives as long as the game.
+ *
+ * It also plays the moves on a board of its own and keeps the FEN after
+ * the last capture or pawn move. No position before that move can come
+ * back, so "position fen <that> moves <the rest>" tells the engine just
+ * as much for repetitions and the fifty move rule, and it is sent
+ * instead whenever it is shorter.
+ */
+final class PositionCommand {
+    private final ChessBoard board = new ChessBoard();
+    private final FenExporter fen = new FenExporter(board);
+    private final StringBuilder command = new StringBuilder(256);
+    private final StringBuilder snapshot = new StringBuilder(128);
+    private final StringBuilder shorter = new StringBuilder(256);
+    private final List<String> sent = new ArrayList<>();
+    private String startFen;
+
+    // where the moves after the last irreversible one start in `command`, -1 if there was none
+    private int snapshotEnd = -1;
+
+    PositionCommand() {
+        reset(null);
+    }
+
+    /*
+     * The command for the game from `startFen` (null for the start position)
+     * with `moves` played, in coordinate notation. If `moves` continues the
+     * moves of the last call only the new ones are looked at, anything
+     * else starts over. The returned buffer is reused by the next call.
+     * Throws IllegalArgumentException on an illegal move.
+     */
+    CharSequence update(String startFen, List<String> moves) {
+        // the whole sent line has to match, a new line may share its last move with the old one
+        boolean continues = sameStart(startFen) && moves.size() >= sent.size()
+                && moves.subList(0, sent.size()).equals(sent);
+        if (!continues) reset(startFen);
+
+        for (int i = sent.size(); i < moves.size(); i++) play(moves.get(i));
+
+        if (snapshotEnd < 0) return command;
+
+        int tail = command.length() - snapshotEnd;
+        int length = "position fen ".length() + snapshot.length() + (tail > 0 ? " moves".length() + tail : 0);
+        if (length >= command.length()) return command;
+
+        shorter.setLength(0);
+        shorter.append("position fen ").append(snapshot);
+        if (tail > 0) shorter.append(" moves").append(command, snapshotEnd, command.length());
+        return shorter;
+    }
+
+    // forgets the moves sent, the next command gives the whole game
+    void clear() {
+        reset(null);
+    }
+
+    private boolean sameStart(String fen) {
+        return startFen == null ? fen == null : startFen.equals(fen);
+    }
+
+    private void reset(String startFen) {
+        this.startFen = startFen;
+        if (startFen == null) ChessBoard.startpos(board);
+        else board.loadFen(startFen);
+
+        sent.clear();
+        command.setLength(0);
+        command.append("position ").append(startFen == null ? "startpos" : "fen " + startFen);
+        snapshotEnd = -1;
+    }
+
+    private void play(String uci) {
+        int move = Move.parseUci(board, uci);
+        if (move == Move.NONE) {
+            reset(startFen);
+            throw new IllegalArgumentException("Illegal move: " + uci);
+        }
+
+        board.makeMove(move);
+        if (sent.isEmpty()) command.append(" moves");
+        sent.add(uci);
+        command.append(' ').append(uci);
+
+        if (Move.piece(move) == ChessConstants.PAWN || Move.isCapture(move)) {
+            snapshot.setLength(0);
+            snapshot.append(fen.export());
+            snapshotEnd = command.length();
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.Move;
+import chess.MoveList;
+import chess.TranspositionTable;
+
+import java.util.function.Consumer;
+
+/*
+ * Iterative deepening negamax with alpha-beta pruning and a capture-only
+ * quiescence search at the leaves. Moves are ordered best move of the
+ * previous iteration first, then captures by most valuable victim /
+ * least valuable attacker, promotions and killer moves. Results are kept
+ * in a TranspositionTable, which gives the first move to try in positions
+ * seen before and cuts off ones already searched deep enough. Several
+ * Search instances may share one table.
+ *
+ * The search plays moves on the board it is given with makeMove/unmakeMove
+ * and leaves it as it found it.
+ */
+public class Search {
+    public static final int INFINITY = 32000;
+    public static final int MATE = 31000;
+    public static final int MAX_PLY = 64;
+    public static final int DEFAULT_HASH_MB = 16;
+
+    private final ChessBoard board;
+    private final TranspositionTable table;
+    private final MoveList[] moves = new MoveList[MAX_PLY + 1];
+    private final int[][] moveScores = new int[MAX_PLY + 1][MoveList.MAX_MOVES];
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+
+    // hashes of the positions before the current one, game moves first, for repetition checks
+    private long[] history = new long[MAX_PLY * 2];
+    private int historySize;
+    private int gameHistorySize;
+
+    private long nodes;
+    private long maxNodes;
+    // written by setTimeLimit from other threads
+    private volatile long deadline;
+    private volatile boolean stopped;
+    private int rootBest;
+
+    public Search(ChessBoard board) {
+        this(board, new TranspositionTable(DEFAULT_HASH_MB));
+    }
+
+    public Search(ChessBoard board, TranspositionTable table) {
+        this.board = board;
+        this.table = table;
+        for (int ply = 0; ply <= MAX_PLY; ply++) moves[ply] = new MoveList();
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    public record Result(int bestMove, int score, int depth, long nodes, long millis) {}
+
+    // positions played before the search root, a repetition of one is scored as a draw
+    public void setGameHistory(long[] hashes, int count) {
+        if (history.length < count + MAX_PLY + 1) history = new long[count + MAX_PLY + 1];
+        System.arraycopy(hashes, 0, history, 0, count);
+        gameHistorySize = count;
+    }
+
+    // can be called from another thread, the search returns its last completed iteration
+    public void stop() {
+        stopped = true;
+    }
+
+    // forgets a stop(), search() itself honours one that came before it started
+    public void clearStop() {
+        stopped = false;
+    }
+
+    // gives a running search `timeMillis` from now, it can be called from another thread
+    public void setTimeLimit(long timeMillis) {
+        deadline = timeMillis > 0 ? System.nanoTime() + timeMillis * 1_000_000L : Long.MAX_VALUE;
+    }
+
+    /*
+     * Searches up to `maxDepth` plies or until `timeMillis` has passed
+     * (no limit if not positive). `info` receives a UCI style info line
+     * after every completed iteration.
+     */
+    public Result search(int maxDepth, long timeMillis, Consumer<String> info) {
+        return search(maxDepth, timeMillis, 0, info);
+    }
+
+    // as above, and stops after about `maxNodes` nodes if that is positive
+    public Result search(int maxDepth, long timeMillis, long maxNodes, Consumer<String> info) {
+        long start = System.nanoTime();
+        deadline = timeMillis > 0 ? start + timeMillis * 1_000_000L : Long.MAX_VALUE;
+        this.maxNodes = maxNodes > 0 ? maxNodes : Long.MAX_VALUE;
+        nodes = 0;
+        historySize = gameHistorySize;
+        rootBest = Move.NONE;
+        table.newSearch();
+        for (int[] k : killers) k[0] = k[1] = Move.NONE;
+
+        int bestMove = Move.NONE;
+        int bestScore = 0;
+        int completed = 0;
+
+        for (int depth = 1; depth <= Math.min(maxDepth, MAX_PLY); depth++) {
+            int score = negamax(depth, 0, -INFINITY, INFINITY);
+
+            // a cut off iteration is only trusted if nothing was completed before it
+            if (stopped && completed > 0) break;
+
+            bestMove = rootBest;
+            bestScore = score;
+            completed = depth;
+
+            long millis = (System.nanoTime() - start) / 1_000_000L;
+            info.accept(String.format("info depth %d score %s nodes %d time %d pv %s",
+                    depth, formatScore(score), nodes, millis,
+                    bestMove == Move.NONE ? "" : Move.toUci(bestMove)));
+
+            if (stopped || bestMove == Move.NONE || Math.abs(score) >= MATE - MAX_PLY) break;
+        }
+
+        // stopped before the first move was searched, any legal move beats none
+        if (bestMove == Move.NONE && board.generateMoves(moves[0]) > 0) bestMove = moves[0].get(0);
+
+        return new Result(bestMove, bestScore, completed, nodes, (System.nanoTime() - start) / 1_000_000L);
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        if (checkTime()) return 0;
+        if (ply > 0 && isRepetition()) return 0;
+
+        boolean inCheck = board.isInCheck(board.isWhiteToMove());
+        // look one ply further when in check so forced sequences are not cut short
+        if (inCheck) depth++;
+        if (depth <= 0 || ply >= MAX_PLY) return quiescence(ply, alpha, beta);
+
+        long hash = board.getHash();
+        long entry = table.probe(hash);
+        int hashMove = Move.NONE;
+
+        if (entry != TranspositionTable.NO_ENTRY) {
+            hashMove = TranspositionTable.move(entry);
+
+            // the root always searches so it has a move to return
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) return score;
+            }
+        }
+
+        MoveList list = moves[ply];
+        int count = board.generateMoves(list);
+        if (count == 0) return inCheck ? -MATE + ply : 0;
+
+        scoreMoves(list, ply, ply == 0 && rootBest != Move.NONE ? rootBest : hashMove);
+
+        int alphaStart = alpha;
+        int best = -INFINITY;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(list, ply, i);
+
+            history[historySize++] = hash;
+            board.makeMove(move);
+            int score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            board.unmakeMove();
+            historySize--;
+
+            if (stopped) return 0;
+
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (ply == 0) rootBest = move;
+            }
+            if (score > alpha) alpha = score;
+            if (alpha >= beta) {
+                if (!Move.isCapture(move) && killers[ply][0] != move) {
+                    killers[ply][1] = killers[ply][0];
+                    killers[ply][0] = move;
+                }
+                break;
+            }
+        }
+
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > alphaStart ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(hash, table.packSearch(bestMove, toTable(best, ply), depth, bound));
+        return best;
+    }
+
+    // mate scores are stored as distance from the position, not from the root
+    private static int toTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) return score + ply;
+        if (score <= -MATE + MAX_PLY) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) return score - ply;
+        if (score <= -MATE + MAX_PLY) return score + ply;
+        return score;
+    }
+
+    private int quiescence(int ply, int alpha, int beta) {
+        if (checkTime()) return 0;
+        // the move lists end here, a long run of checks is cut off at the static eval
+        if (ply >= MAX_PLY) return Evaluation.evaluate(board);
+
+        boolean inCheck = board.isInCheck(board.isWhiteToMove());
+        int best = -INFINITY;
+        MoveList list = moves[ply];
+        int count;
+
+        // standing pat, unless in check where every evasion has to be looked at
+        if (inCheck) {
+            count = board.generateMoves(list);
+            if (count == 0) return -MATE + ply;
+        } else {
+            best = Evaluation.evaluate(board);
+            if (best >= beta) return best;
+            if (best > alpha) alpha = best;
+
+            // quiet moves are not generated, a position without captures is scored by standing pat
+            count = board.generateCaptures(list);
+        }
+
+        scoreMoves(list, ply, Move.NONE);
+
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(list, ply, i);
+
+            board.makeMove(move);
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            board.unmakeMove();
+
+            if (stopped) return 0;
+
+            if (score > best) best = score;
+            if (score > alpha) alpha = score;
+            if (alpha >= beta) break;
+        }
+        return best;
+    }
+
+    private void scoreMoves(MoveList list, int ply, int pvMove) {
+        int[] scores = moveScores[ply];
+
+        for (int i = 0; i < list.size(); i++) {
+            int move = list.get(i);
+
+            if (move == pvMove) {
+                scores[i] = 1_000_000;
+            } else if (Move.isCapture(move)) {
+                scores[i] = 100_000 + 10 * Evaluation.PIECE_VALUES[Move.captured(move)]
+                        - Evaluation.PIECE_VALUES[Move.piece(move)] / 10;
+            } else if (Move.isPromotion(move)) {
+                scores[i] = 90_000 + Evaluation.PIECE_VALUES[Move.promotion(move)];
+            } else if (move == killers[ply][0] || move == killers[ply][1]) {
+                scores[i] = 80_000;
+            } else {
+                scores[i] = 0;
+            }
+        }
+    }
+
+    // selection sort one step at a time, most nodes cut off after a few moves
+    private int pickNext(MoveList list, int ply, int index) {
+        int[] scores = moveScores[ply];
+        int best = index;
+
+        for (int i = index + 1; i < list.size(); i++) {
+            if (scores[i] > scores[best]) best = i;
+        }
+        if (best != index) {
+            list.swap(index, best);
+            int tmp = scores[index];
+            scores[index] = scores[best];
+            scores[best] = tmp;
+        }
+        return list.get(index);
+    }
+
+    private boolean isRepetition() {
+        long hash = board.getHash();
+
+        // the same position can only come back with the same side to move
+        for (int i = historySize - 2; i >= 0; i -= 2) {
+            if (history[i] == hash) return true;
+        }
+        return false;
+    }
+
+    private boolean checkTime() {
+        if ((++nodes & 2047) == 0 && (System.nanoTime() > deadline || nodes >= maxNodes)) stopped = true;
+        return stopped;
+    }
+
+    private static String formatScore(int score) {
+        if (Math.abs(score) >= MATE - MAX_PLY) {
+            int plies = MATE - Math.abs(score);
+            return "mate " + (score > 0 ? (plies + 1) / 2 : -(plies + 1) / 2);
+        }
+        return "cp " + score;
+    }
+}
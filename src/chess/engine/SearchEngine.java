@@ -0,0 +1,133 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.Move;
+import chess.TranspositionTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * The built-in alpha-beta searcher behind the Engine interface, so it can
+ * be used anywhere an external UCI engine is. Runs in-process on its own
+ * board, no process or pipes involved.
+ */
+public class SearchEngine implements Engine {
+    private final ChessBoard board = new ChessBoard();
+    private final Search search;
+    private long[] gameHistory = new long[256];
+
+    // the limits of the running go(), and whether it has to wait for stop() or ponderhit() to return
+    private SearchLimits limits;
+    private boolean white;
+    private boolean held;
+    // whether go() is searching, and a stop() that came while it was not, for the next go()
+    private boolean running;
+    private boolean stopPending;
+
+    public SearchEngine() {
+        this(Search.DEFAULT_HASH_MB);
+    }
+
+    // `hashMegabytes` sizes the transposition table, like the UCI Hash option
+    public SearchEngine(int hashMegabytes) {
+        search = new Search(board, new TranspositionTable(hashMegabytes));
+    }
+
+    @Override
+    public String name() {
+        return "JavaChess";
+    }
+
+    @Override
+    public List<String> options() {
+        return List.of("option name Hash type spin default " + Search.DEFAULT_HASH_MB + " min 1 max 1024");
+    }
+
+    @Override
+    public boolean isready() {
+        return true;
+    }
+
+    @Override
+    public void position(String fen, List<String> moves) {
+        // a stop for the last position does not carry over to this one
+        synchronized (this) {
+            stopPending = false;
+        }
+        if (fen == null) ChessBoard.startpos(board);
+        else board.loadFen(fen);
+        int count = 0;
+
+        for (String uci : moves) {
+            int move = Move.parseUci(board, uci);
+            if (move == Move.NONE) throw new IllegalArgumentException("Illegal move: " + uci);
+
+            if (count == gameHistory.length) gameHistory = Arrays.copyOf(gameHistory, count * 2);
+            gameHistory[count++] = board.getHash();
+            board.makeMove(move);
+        }
+        search.setGameHistory(gameHistory, count);
+    }
+
+    /*
+     * Searches on the calling thread. As UCI asks, an infinite or
+     * pondering search does not return before stop() or ponderhit(), even
+     * when it has nothing left to search. A stop() that came after the
+     * last position() but before the search was set up stops it at once.
+     */
+    @Override
+    public ChessEngine.GoResult go(SearchLimits limits) {
+        boolean white = board.isWhiteToMove();
+        boolean unlimited = limits.isInfinite() || limits.isPonder();
+        // armed under the lock, so a stop() lands either before, and is pending, or after, and stops the search
+        synchronized (this) {
+            this.limits = limits;
+            this.white = white;
+            held = unlimited && !stopPending;
+            search.clearStop();
+            if (stopPending) search.stop();
+            stopPending = false;
+            running = true;
+        }
+
+        List<String> info = new ArrayList<>();
+        int depth = limits.getDepth() > 0 ? Math.min(limits.getDepth(), Search.MAX_PLY) : Search.MAX_PLY;
+        Search.Result result = search.search(depth, unlimited ? 0 : limits.timeFor(white), limits.getNodes(), info::add);
+
+        synchronized (this) {
+            try {
+                while (held) wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running = false;
+        }
+
+        String bestmove = result.bestMove() == Move.NONE ? "(none)" : Move.toUci(result.bestMove());
+        return new ChessEngine.GoResult(info, "bestmove " + bestmove);
+    }
+
+    // can be called from another thread while go() runs, or before it, see go()
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            stopPending = true;
+            return;
+        }
+        held = false;
+        notifyAll();
+        search.stop();
+    }
+
+    // the clock starts now, what was searched while pondering is kept
+    @Override
+    public synchronized void ponderhit() {
+        if (limits == null || !limits.isPonder()) return;
+
+        search.setTimeLimit(limits.timeFor(white));
+        held = limits.isInfinite();
+        notifyAll();
+    }
+}
@@ -0,0 +1,132 @@
+package chess.engine;
+
+/*
+ * The parameters of a UCI "go" command. Start from one of the factories
+ * and add to it, e.g. SearchLimits.clock(60000, 60000, 1000, 1000).depth(20).
+ * Times are in milliseconds, a value of 0 means the limit is not set.
+ */
+public final class SearchLimits {
+    // the part of the remaining time a move gets when the number of moves to go is unknown
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+    // kept back from the clock for the time it takes to send a move
+    private static final long MOVE_OVERHEAD = 50;
+
+    private long wtime;
+    private long btime;
+    private long winc;
+    private long binc;
+    private int movestogo;
+    private long movetime;
+    private int depth;
+    private long nodes;
+    private boolean infinite;
+    private boolean ponder;
+
+    private SearchLimits() {}
+
+    public static SearchLimits movetime(long millis) {
+        SearchLimits limits = new SearchLimits();
+        limits.movetime = millis;
+        return limits;
+    }
+
+    // the remaining time on both clocks and their increments per move
+    public static SearchLimits clock(long wtime, long btime, long winc, long binc) {
+        SearchLimits limits = new SearchLimits();
+        limits.wtime = wtime;
+        limits.btime = btime;
+        limits.winc = winc;
+        limits.binc = binc;
+        return limits;
+    }
+
+    // searches until "stop"
+    public static SearchLimits infinite() {
+        SearchLimits limits = new SearchLimits();
+        limits.infinite = true;
+        return limits;
+    }
+
+    // no time limit, only the limits added to it
+    public static SearchLimits none() {
+        return new SearchLimits();
+    }
+
+    public SearchLimits movestogo(int moves) {
+        movestogo = moves;
+        return this;
+    }
+
+    public SearchLimits depth(int plies) {
+        depth = plies;
+        return this;
+    }
+
+    public SearchLimits nodes(long count) {
+        nodes = count;
+        return this;
+    }
+
+    /*
+     * Searches on the opponent's time, the position being the one after
+     * the move the engine expects. The search only becomes a normal one
+     * with these limits on "ponderhit", until then it runs without limit.
+     */
+    public SearchLimits ponder() {
+        ponder = true;
+        return this;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public boolean isInfinite() {
+        return infinite;
+    }
+
+    public boolean isPonder() {
+        return ponder;
+    }
+
+    /*
+     * How long the side to move should think for: the fixed move time if
+     * there is one, otherwise its share of the remaining clock plus most
+     * of the increment, and 0 when there is no time limit at all.
+     */
+    public long timeFor(boolean white) {
+        if (movetime > 0) return movetime;
+
+        long time = white ? wtime : btime;
+        long inc = white ? winc : binc;
+        if (time <= 0) return 0;
+
+        long share = time / (movestogo > 0 ? movestogo : DEFAULT_MOVES_TO_GO) + inc * 3 / 4;
+        return Math.max(1, Math.min(share, time - MOVE_OVERHEAD));
+    }
+
+    public String toCommand() {
+        StringBuilder sb = new StringBuilder("go");
+
+        if (ponder) sb.append(" ponder");
+        if (wtime > 0) sb.append(" wtime ").append(wtime);
+        if (btime > 0) sb.append(" btime ").append(btime);
+        if (winc > 0) sb.append(" winc ").append(winc);
+        if (binc > 0) sb.append(" binc ").append(binc);
+        if (movestogo > 0) sb.append(" movestogo ").append(movestogo);
+        if (depth > 0) sb.append(" depth ").append(depth);
+        if (nodes > 0) sb.append(" nodes ").append(nodes);
+        if (movetime > 0) sb.append(" movetime ").append(movetime);
+        if (infinite) sb.append(" infinite");
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toCommand();
+    }
+}
@@ -0,0 +1,470 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.Fen;
+import chess.Move;
+import chess.book.PolyglotBook;
+import chess.pgn.PgnGame;
+import chess.pgn.PgnReader;
+import chess.pgn.PgnWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+/*
+ * Plays UCI engines against each other without the UI, many games at
+ * once. Every engine plays every other one, each opening once with
+ * either colour per round. The games are refereed by ChessGame: mate,
+ * stalemate, threefold repetition, the fifty move rule and insufficient
+ * material end them, so do an illegal move, a crash or a flag fall.
+ *
+ * Each engine gets a pool of as many processes as games run at once, so
+ * a game always finds both of its engines free and no process is started
+ * after the first game.
+ */
+public class Tournament {
+    // the longest a game may go before it is called a draw
+    private static final int MAX_PLIES = 600;
+    // how far past its clock or move time an engine may go before it loses on time
+    private static final long TIME_MARGIN_MILLIS = 100;
+    private static final long MOVETIME_GRACE_MILLIS = 1000;
+
+    private final List<String> engines;
+    private final int concurrency;
+    private List<Opening> openings = List.of(new Opening(null, List.of()));
+    private TimeControl timeControl = TimeControl.movetime(100);
+    private int rounds = 1;
+    private String event = "Tournament";
+    private PgnWriter pgn;
+    private BiConsumer<PgnGame, Score> listener;
+    private PolyglotBook book;
+
+    // SPRT bounds, only used in a match of two engines
+    private boolean sprt;
+    private double elo0;
+    private double elo1;
+    private double alpha;
+    private double beta;
+    private volatile boolean stopped;
+
+    // a position to start from, a FEN or null for the start position, and moves played from it
+    public record Opening(String fen, List<String> moves) {}
+
+    /*
+     * Either a clock with a base time and an increment per move, or a
+     * fixed time per move when `movetimeMillis` is positive.
+     */
+    public record TimeControl(long baseMillis, long incrementMillis, long movetimeMillis) {
+        public static TimeControl clock(long baseMillis, long incrementMillis) {
+            return new TimeControl(baseMillis, incrementMillis, 0);
+        }
+
+        public static TimeControl movetime(long millis) {
+            return new TimeControl(0, 0, millis);
+        }
+
+        // "base+increment" in seconds, as in the PGN TimeControl tag, e.g. "60+0.5"
+        public static TimeControl parse(String tc) {
+            String[] parts = tc.split("\\+");
+            long base = Math.round(Double.parseDouble(parts[0]) * 1000);
+            long inc = parts.length > 1 ? Math.round(Double.parseDouble(parts[1]) * 1000) : 0;
+            return clock(base, inc);
+        }
+
+        private SearchLimits limits(long wtime, long btime) {
+            if (movetimeMillis > 0) return SearchLimits.movetime(movetimeMillis);
+            return SearchLimits.clock(wtime, btime, incrementMillis, incrementMillis);
+        }
+
+        @Override
+        public String toString() {
+            if (movetimeMillis > 0) return movetimeMillis / 1000.0 + "/move";
+            return baseMillis / 1000 + (incrementMillis > 0 ? "+" + incrementMillis / 1000.0 : "");
+        }
+    }
+
+    public Tournament(List<String> engines) {
+        this(engines, Runtime.getRuntime().availableProcessors());
+    }
+
+    public Tournament(List<String> engines, int concurrency) {
+        if (engines.size() < 2) throw new IllegalArgumentException("A tournament needs two engines at least");
+        this.engines = List.copyOf(engines);
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    public void setOpenings(List<Opening> openings) {
+        if (openings.isEmpty()) throw new IllegalArgumentException("No openings");
+        this.openings = List.copyOf(openings);
+    }
+
+    public void setTimeControl(TimeControl timeControl) {
+        this.timeControl = timeControl;
+    }
+
+    public void setRounds(int rounds) {
+        this.rounds = Math.max(1, rounds);
+    }
+
+    public void setEvent(String event) {
+        this.event = event;
+    }
+
+    // finished games are written here as they come in, in no particular order
+    public void setPgnWriter(PgnWriter pgn) {
+        this.pgn = pgn;
+    }
+
+    /*
+     * After the opening, moves are taken from `book` while it has any for
+     * the position, weighted at random, and cost neither side any time.
+     */
+    public void setBook(PolyglotBook book) {
+        this.book = book;
+    }
+
+    // called with every finished game and the score of its pairing after it, one game at a time
+    public void setListener(BiConsumer<PgnGame, Score> listener) {
+        this.listener = listener;
+    }
+
+    /*
+     * Ends a match of two engines early once the first one is shown to
+     * be `elo0` (H0) or `elo1` (H1) Elo stronger than the second, with
+     * error rates `alpha` and `beta`.
+     */
+    public void setSprt(double elo0, double elo1, double alpha, double beta) {
+        if (engines.size() != 2) throw new IllegalStateException("SPRT needs a match of two engines");
+        sprt = true;
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.alpha = alpha;
+        this.beta = beta;
+    }
+
+    /*
+     * Reads openings from a PGN file, the moves of each game from its FEN
+     * tag or the start position, or else one FEN or EPD per line, with
+     * blank lines and lines starting with '#' skipped.
+     */
+    public static List<Opening> loadOpenings(Path path) throws IOException {
+        List<Opening> openings = new ArrayList<>();
+
+        if (path.toString().toLowerCase().endsWith(".pgn")) {
+            ChessBoard board = new ChessBoard();
+            try (PgnReader reader = new PgnReader(path)) {
+                for (PgnGame game; (game = reader.next()) != null; ) {
+                    List<String> moves = new ArrayList<>();
+                    for (int move : game.replay(board)) moves.add(Move.toUci(move));
+                    openings.add(new Opening(game.getTag("FEN"), moves));
+                }
+            }
+            return openings;
+        }
+
+        for (String line : Files.readAllLines(path)) {
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            // EPD has no clocks and may have operations after the fourth field
+            String[] fields = line.split("\\s+");
+            String fen = fields.length >= 6 && fields[4].matches("\\d+") && fields[5].matches("\\d+")
+                    ? String.join(" ", List.of(fields).subList(0, 6))
+                    : String.join(" ", List.of(fields).subList(0, Math.min(4, fields.length))) + " 0 1";
+            Fen.load(new ChessBoard(), fen);
+            openings.add(new Opening(fen, List.of()));
+        }
+        return openings;
+    }
+
+    /*
+     * Plays every game and returns the score of each pairing, first engine
+     * against second, in the order the engines were given.
+     */
+    public List<Score> run() throws IOException, InterruptedException {
+        List<EnginePool> pools = new ArrayList<>(engines.size());
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        stopped = false;
+
+        try {
+            List<String> names = new ArrayList<>(engines.size());
+            for (String path : engines) {
+                EnginePool pool = new EnginePool(path, concurrency);
+                pools.add(pool);
+                ChessEngine engine = pool.lease();
+                names.add(engine.name() == null ? path : engine.name());
+                pool.release(engine);
+            }
+
+            List<Score> scores = new ArrayList<>();
+            List<Future<?>> games = new ArrayList<>();
+            for (int a = 0; a < engines.size(); a++) {
+                for (int b = a + 1; b < engines.size(); b++) scores.add(new Score(names.get(a), names.get(b)));
+            }
+
+            int round = 0;
+            for (int r = 0; r < rounds; r++) {
+                for (Opening opening : openings) {
+                    int pairing = 0;
+                    for (int a = 0; a < engines.size(); a++) {
+                        for (int b = a + 1; b < engines.size(); b++, pairing++) {
+                            Score score = scores.get(pairing);
+                            // the same opening with colours reversed, so neither engine profits from it
+                            Game first = new Game(++round, opening, pools.get(a), pools.get(b), names.get(a), names.get(b), score, true);
+                            Game second = new Game(++round, opening, pools.get(b), pools.get(a), names.get(b), names.get(a), score, false);
+                            games.add(workers.submit(() -> play(first)));
+                            games.add(workers.submit(() -> play(second)));
+                        }
+                    }
+                }
+            }
+
+            for (Future<?> game : games) game.get();
+            return scores;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IllegalStateException("Game failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+            for (EnginePool pool : pools) pool.close();
+        }
+    }
+
+    // the two engines and the score to count the result into, `forward` if white is the pairing's first engine
+    private record Game(int round, Opening opening, EnginePool whitePool, EnginePool blackPool,
+                        String white, String black, Score score, boolean forward) {}
+
+    private Void play(Game g) throws IOException, InterruptedException {
+        if (stopped) return null;
+
+        ChessEngine white = g.whitePool().lease();
+        ChessEngine black;
+        try {
+            black = g.blackPool().lease();
+        } catch (IOException | InterruptedException e) {
+            g.whitePool().release(white);
+            throw e;
+        }
+
+        ChessGame game = new ChessGame();
+        String[] outcome;
+        try {
+            outcome = play(game, g.opening(), white, black);
+        } finally {
+            g.whitePool().release(white);
+            g.blackPool().release(black);
+        }
+
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("Event", event);
+        tags.put("Site", "?");
+        tags.put("Date", LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy.MM.dd")));
+        tags.put("Round", Integer.toString(g.round()));
+        tags.put("White", g.white());
+        tags.put("Black", g.black());
+        tags.put("TimeControl", timeControl.toString());
+        tags.put("Termination", outcome[1]);
+        PgnGame record = PgnGame.fromUci(tags, g.opening().fen(), game.log(), outcome[0]);
+
+        Score score = g.score();
+        synchronized (this) {
+            score.add(outcome[0], g.forward());
+            if (pgn != null) pgn.write(record);
+            if (listener != null) listener.accept(record, score);
+            if (sprt && score.sprt(elo0, elo1, alpha, beta) != Sprt.CONTINUE) stopped = true;
+        }
+        return null;
+    }
+
+    // plays the game out, returns its result and the reason for it as in the PGN Termination tag
+    private String[] play(ChessGame game, Opening opening, ChessEngine white, ChessEngine black)
+            throws InterruptedException {
+        if (opening.fen() != null) game.loadFen(opening.fen());
+        for (String move : opening.moves()) {
+            if (!game.moveUci(move)) throw new IllegalArgumentException("Illegal opening move: " + move);
+        }
+        long[] clock = {timeControl.baseMillis(), timeControl.baseMillis()};
+        ChessBoard board = book == null ? null : new ChessBoard();
+        boolean inBook = book != null;
+
+        for (int ply = 0; ; ply++) {
+            boolean whiteToMove = game.isWhiteTurn();
+            String loss = whiteToMove ? "0-1" : "1-0";
+
+            if (game.hasCheckMate()) return new String[] {loss, "normal"};
+            if (game.hasStaleMate() || game.hasThreefoldRepetition() || game.hasFiftyMoveRule()
+                    || game.hasInsufficientMaterial()) {
+                return new String[] {"1/2-1/2", "normal"};
+            }
+            if (ply == MAX_PLIES) return new String[] {"1/2-1/2", "adjudication"};
+
+            if (inBook) {
+                board.loadFen(game.getFen());
+                int move = book.pick(board, ThreadLocalRandom.current());
+                if (move != Move.NONE && game.moveUci(Move.toUci(move))) continue;
+                inBook = false;
+            }
+
+            ChessEngine engine = whiteToMove ? white : black;
+            int side = whiteToMove ? 0 : 1;
+            long allowed = timeControl.movetimeMillis() > 0
+                    ? timeControl.movetimeMillis() + MOVETIME_GRACE_MILLIS
+                    : clock[side] + TIME_MARGIN_MILLIS;
+
+            ChessEngine.GoResult result;
+            long start = System.nanoTime();
+            CompletableFuture<ChessEngine.GoResult> search = null;
+            try {
+                engine.position(game.getStartFen(), game.log());
+                search = engine.goAsync(timeControl.limits(clock[0], clock[1]));
+                result = search.get(allowed, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                search.cancel(true);
+                return new String[] {loss, "time forfeit"};
+            } catch (IOException | ExecutionException e) {
+                return new String[] {loss, "abandoned"};
+            }
+
+            long elapsed = (System.nanoTime() - start) / 1_000_000L;
+            if (timeControl.movetimeMillis() <= 0) {
+                clock[side] -= elapsed;
+                if (clock[side] < -TIME_MARGIN_MILLIS) return new String[] {loss, "time forfeit"};
+                clock[side] = Math.max(0, clock[side]) + timeControl.incrementMillis();
+            }
+
+            String[] bestmove = result.bestmove().split("\\s+");
+            if (bestmove.length < 2 || !game.moveUci(bestmove[1])) return new String[] {loss, "rules infraction"};
+        }
+    }
+
+    public enum Sprt { CONTINUE, ACCEPT_H0, ACCEPT_H1 }
+
+    // wins, draws and losses of one engine against another, with its Elo difference estimated from them
+    public static final class Score {
+        private final String first;
+        private final String second;
+        private long wins;
+        private long draws;
+        private long losses;
+
+        Score(String first, String second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        public String getFirst() {
+            return first;
+        }
+
+        public String getSecond() {
+            return second;
+        }
+
+        public long getWins() {
+            return wins;
+        }
+
+        public long getDraws() {
+            return draws;
+        }
+
+        public long getLosses() {
+            return losses;
+        }
+
+        public long getGames() {
+            return wins + draws + losses;
+        }
+
+        // the first engine's points per game
+        public double getScore() {
+            long games = getGames();
+            return games == 0 ? 0.5 : (wins + draws / 2.0) / games;
+        }
+
+        // Elo difference of the first engine over the second, infinite after nothing but wins or losses
+        public double elo() {
+            return elo(getScore());
+        }
+
+        // half the width of the 95% confidence interval of elo()
+        public double eloMargin() {
+            long games = getGames();
+            if (games == 0) return Double.POSITIVE_INFINITY;
+
+            double s = getScore();
+            if (s == 0 || s == 1) return Double.POSITIVE_INFINITY;
+            double deviation = 1.96 * Math.sqrt(variance() / games);
+            return (elo(Math.min(1, s + deviation)) - elo(Math.max(0, s - deviation))) / 2;
+        }
+
+        /*
+         * Log likelihood ratio of "elo1 stronger" over "elo0 stronger",
+         * from the normal approximation of the score per game.
+         */
+        public double llr(double elo0, double elo1) {
+            double variance = variance();
+            if (variance == 0) return 0;
+
+            double s0 = expected(elo0);
+            double s1 = expected(elo1);
+            double points = wins + draws / 2.0;
+            return (s1 - s0) * (2 * points - getGames() * (s0 + s1)) / (2 * variance);
+        }
+
+        public Sprt sprt(double elo0, double elo1, double alpha, double beta) {
+            double llr = llr(elo0, elo1);
+            if (llr >= Math.log((1 - beta) / alpha)) return Sprt.ACCEPT_H1;
+            if (llr <= Math.log(beta / (1 - alpha))) return Sprt.ACCEPT_H0;
+            return Sprt.CONTINUE;
+        }
+
+        private void add(String result, boolean forward) {
+            switch (result) {
+                case "1-0" -> { if (forward) wins++; else losses++; }
+                case "0-1" -> { if (forward) losses++; else wins++; }
+                default -> draws++;
+            }
+        }
+
+        // of the points of a single game
+        private double variance() {
+            long games = getGames();
+            if (games == 0) return 0;
+
+            double s = getScore();
+            return (wins * (1 - s) * (1 - s) + draws * (0.5 - s) * (0.5 - s) + losses * s * s) / games;
+        }
+
+        private static double elo(double score) {
+            return -400 * Math.log10(1 / score - 1);
+        }
+
+        private static double expected(double elo) {
+            return 1 / (1 + Math.pow(10, -elo / 400));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s vs %s: +%d =%d -%d  %.1f%%  Elo %.1f +/- %.1f",
+                    first, second, wins, draws, losses, getScore() * 100, elo(), eloMargin());
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package chess.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Lines a UCI engine sends, parsed. Anything not listed here arrives as
+ * Other with the raw line.
+ */
+public sealed interface UciEvent {
+    String line();
+
+    record Id(String line, String key, String value) implements UciEvent {}
+
+    record Option(String line) implements UciEvent {}
+
+    record UciOk(String line) implements UciEvent {}
+
+    record ReadyOk(String line) implements UciEvent {}
+
+    /*
+     * Search progress. Fields the engine left out are -1, `mate` is the
+     * distance to mate in moves when the score is a mate score and 0
+     * otherwise, in which case `centipawns` holds the score.
+     */
+    record Info(String line, int depth, int seldepth, int centipawns, int mate,
+                long nodes, long nps, long time, List<String> pv) implements UciEvent {}
+
+    // `ponder` is null if the engine did not suggest a move to ponder on
+    record BestMove(String line, String move, String ponder) implements UciEvent {}
+
+    record Other(String line) implements UciEvent {}
+
+    static UciEvent parse(String line) {
+        String[] t = line.trim().split("\\s+");
+
+        return switch (t[0]) {
+            case "id" -> new Id(line, t.length > 1 ? t[1] : "", rest(line, 2));
+            case "option" -> new Option(line);
+            case "uciok" -> new UciOk(line);
+            case "readyok" -> new ReadyOk(line);
+            case "info" -> parseInfo(line, t);
+            case "bestmove" -> new BestMove(line, t.length > 1 ? t[1] : "(none)",
+                    t.length > 3 && t[2].equals("ponder") ? t[3] : null);
+            default -> new Other(line);
+        };
+    }
+
+    private static Info parseInfo(String line, String[] t) {
+        int depth = -1, seldepth = -1, centipawns = 0, mate = 0;
+        long nodes = -1, nps = -1, time = -1;
+        List<String> pv = List.of();
+
+        try {
+            for (int i = 1; i < t.length; i++) {
+                switch (t[i]) {
+                    case "depth" -> depth = Integer.parseInt(t[++i]);
+                    case "seldepth" -> seldepth = Integer.parseInt(t[++i]);
+                    case "nodes" -> nodes = Long.parseLong(t[++i]);
+                    case "nps" -> nps = Long.parseLong(t[++i]);
+                    case "time" -> time = Long.parseLong(t[++i]);
+                    case "score" -> {
+                        String kind = t[++i];
+                        int value = Integer.parseInt(t[++i]);
+                        if (kind.equals("mate")) mate = value;
+                        else centipawns = value;
+                    }
+                    // the pv runs to the end of the line
+                    case "pv" -> {
+                        pv = new ArrayList<>(List.of(t).subList(i + 1, t.length));
+                        i = t.length;
+                    }
+                    // free text, nothing after it is a field
+                    case "string" -> i = t.length;
+                    default -> {}
+                }
+            }
+        } catch (RuntimeException e) {
+            // a malformed value leaves the fields read so far
+        }
+        return new Info(line, depth, seldepth, centipawns, mate, nodes, nps, time, pv);
+    }
+
+    // the line from its `n`th space separated word on
+    private static String rest(String line, int n) {
+        String[] parts = line.trim().split("\\s+", n + 1);
+        return parts.length > n ? parts[n] : "";
+    }
+}
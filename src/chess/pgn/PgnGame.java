@@ -0,0 +1,118 @@
+package chess.pgn;
+
+import chess.ChessBoard;
+import chess.Move;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * One game of a PGN file: its tag pairs in file order, the main line in
+ * SAN and the result ("1-0", "0-1", "1/2-1/2" or "*"). Comments, NAGs
+ * and variations are not kept.
+ */
+public class PgnGame {
+    public static final String UNKNOWN_RESULT = "*";
+
+    private final Map<String, String> tags;
+    private final List<String> moves;
+    private String result;
+
+    public PgnGame() {
+        this(new LinkedHashMap<>(), new ArrayList<>(), UNKNOWN_RESULT);
+    }
+
+    public PgnGame(Map<String, String> tags, List<String> moves, String result) {
+        this.tags = tags;
+        this.moves = moves;
+        this.result = result;
+    }
+
+    /*
+     * A game given in coordinate notation, like ChessGame.log(), played
+     * from the start position. Throws IllegalArgumentException on a move
+     * that is not legal.
+     */
+    public static PgnGame fromUci(Map<String, String> tags, List<String> uciMoves, String result) {
+        return fromUci(tags, null, uciMoves, result);
+    }
+
+    // as above from `startFen`, which goes into the SetUp and FEN tags, or the start position if null
+    public static PgnGame fromUci(Map<String, String> tags, String startFen, List<String> uciMoves, String result) {
+        ChessBoard board = new ChessBoard();
+        if (startFen != null) board.loadFen(startFen);
+        else ChessBoard.startpos(board);
+        List<String> san = new ArrayList<>(uciMoves.size());
+
+        for (String uci : uciMoves) {
+            int move = Move.parseUci(board, uci);
+            if (move == Move.NONE) throw new IllegalArgumentException("Illegal move: " + uci);
+
+            san.add(San.toSan(board, move));
+            board.makeMove(move);
+        }
+
+        PgnGame game = new PgnGame(new LinkedHashMap<>(tags), san, result);
+        game.setTag("Result", result);
+        if (startFen != null) {
+            game.setTag("SetUp", "1");
+            game.setTag("FEN", startFen);
+        }
+        return game;
+    }
+
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+
+    public void setTag(String name, String value) {
+        tags.put(name, value);
+    }
+
+    public List<String> getMoves() {
+        return moves;
+    }
+
+    public String getResult() {
+        return result;
+    }
+
+    public void setResult(String result) {
+        this.result = result;
+    }
+
+    /*
+     * Sets up `board` at the game's starting position, the FEN tag if there
+     * is one, and plays the moves on it. Returns the moves as Move ints.
+     * Throws IllegalArgumentException at the first move that does not
+     * resolve to a legal move, with the board left before it.
+     */
+    public int[] replay(ChessBoard board) {
+        String fen = tags.get("FEN");
+        if (fen != null) board.loadFen(fen);
+        else ChessBoard.startpos(board);
+
+        int[] played = new int[moves.size()];
+        for (int i = 0; i < played.length; i++) {
+            int move = San.parse(board, moves.get(i));
+            if (move == Move.NONE) {
+                throw new IllegalArgumentException("Illegal move at ply " + (i + 1) + ": " + moves.get(i));
+            }
+            board.makeMove(move);
+            played[i] = move;
+        }
+        return played;
+    }
+
+    @Override
+    public String toString() {
+        return tags.getOrDefault("White", "?") + " - " + tags.getOrDefault("Black", "?")
+                + " " + result + " (" + moves.size() + " plies)";
+    }
+}
@@ -0,0 +1,217 @@
+package chess.pgn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+ * Reads PGN one game at a time, so files of any size can be processed
+ * with only the current game and a fixed read buffer in memory. Bytes
+ * are pulled through a direct buffer straight from the channel, no
+ * Reader or per-line strings in between.
+ *
+ * Tag values are decoded as UTF-8, movetext as ASCII. Comments, NAGs,
+ * variations and escape lines are skipped, move numbers are dropped.
+ * A game ends at its result token, or at the next tag section when the
+ * result is missing.
+ */
+public class PgnReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private byte[] token = new byte[64];
+    private int tokenLength;
+    private int pushedBack = -1;
+    // the byte last returned by read() and the one before it
+    private int current = '\n';
+    private int previous = '\n';
+    private long position;
+
+    public PgnReader(Path path) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    public PgnReader(InputStream in) {
+        this(Channels.newChannel(in));
+    }
+
+    public PgnReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        buffer.limit(0);
+    }
+
+    // bytes consumed so far, for progress reports
+    public long getPosition() {
+        return position;
+    }
+
+    // the next game, or null at the end of the input
+    public PgnGame next() throws IOException {
+        PgnGame game = null;
+        boolean movetext = false;
+
+        for (int c; (c = read()) >= 0; ) {
+            switch (c) {
+                case ' ', '\t', '\r', '\n', ')' -> {}
+                case '[' -> {
+                    if (movetext) {
+                        unread(c);
+                        return game;
+                    }
+                    if (game == null) game = new PgnGame();
+                    readTag(game);
+                }
+                case '{' -> skipComment();
+                case ';' -> skipLine();
+                case '(' -> skipVariation();
+                case '$' -> readToken(c);
+                case '%' -> {
+                    if (previous == '\n') skipLine();
+                }
+                default -> {
+                    if (game == null) game = new PgnGame();
+                    readToken(c);
+
+                    if (isResult()) {
+                        game.setResult(tokenString(StandardCharsets.US_ASCII));
+                        return game;
+                    }
+                    String san = stripMoveNumber();
+                    if (san != null) {
+                        game.getMoves().add(san);
+                        movetext = true;
+                    }
+                }
+            }
+        }
+        return game;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void readTag(PgnGame game) throws IOException {
+        int c = read();
+        while (c == ' ' || c == '\t') c = read();
+
+        tokenLength = 0;
+        for (; c > ' ' && c != '"' && c != ']'; c = read()) append(c);
+        String name = tokenString(StandardCharsets.US_ASCII);
+
+        while (c >= 0 && c != '"' && c != ']') c = read();
+
+        tokenLength = 0;
+        if (c == '"') {
+            while ((c = read()) >= 0 && c != '"' && c != '\n') {
+                if (c == '\\') c = read();
+                if (c >= 0) append(c);
+            }
+            while (c >= 0 && c != ']' && c != '\n') c = read();
+        }
+        if (!name.isEmpty()) game.setTag(name, tokenString(StandardCharsets.UTF_8));
+    }
+
+    // a token runs to the next space or delimiter, which is left unread
+    private void readToken(int first) throws IOException {
+        tokenLength = 0;
+        append(first);
+
+        int c;
+        while ((c = read()) > ' ' && "{}()[];$\"".indexOf(c) < 0) append(c);
+        if (c >= 0) unread(c);
+    }
+
+    private boolean isResult() {
+        return tokenEquals("1-0") || tokenEquals("0-1") || tokenEquals("1/2-1/2") || tokenEquals("*");
+    }
+
+    // the move in a token like "12.", "12...", "12.e4", "..." or "e4", null if it is only a number or dots
+    private String stripMoveNumber() {
+        int i = 0;
+        while (i < tokenLength && token[i] >= '0' && token[i] <= '9') i++;
+
+        if (i > 0 && i < tokenLength && token[i] != '.') return tokenString(StandardCharsets.US_ASCII);
+        while (i < tokenLength && token[i] == '.') i++;
+        return i == tokenLength ? null : new String(token, i, tokenLength - i, StandardCharsets.US_ASCII);
+    }
+
+    private void skipComment() throws IOException {
+        int c;
+        do c = read(); while (c >= 0 && c != '}');
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        do c = read(); while (c >= 0 && c != '\n');
+    }
+
+    // variations nest, and may hold comments with parentheses in them
+    private void skipVariation() throws IOException {
+        int depth = 1;
+
+        for (int c; depth > 0 && (c = read()) >= 0; ) {
+            if (c == '(') depth++;
+            else if (c == ')') depth--;
+            else if (c == '{') skipComment();
+            else if (c == ';') skipLine();
+        }
+    }
+
+    private void append(int c) {
+        if (tokenLength == token.length) token = Arrays.copyOf(token, tokenLength * 2);
+        token[tokenLength++] = (byte) c;
+    }
+
+    private boolean tokenEquals(String s) {
+        if (s.length() != tokenLength) return false;
+        for (int i = 0; i < tokenLength; i++) {
+            if (token[i] != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private String tokenString(Charset charset) {
+        return new String(token, 0, tokenLength, charset);
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+        position--;
+    }
+
+    private int read() throws IOException {
+        int c;
+
+        if (pushedBack >= 0) {
+            c = pushedBack;
+            pushedBack = -1;
+        } else {
+            if (!buffer.hasRemaining()) {
+                buffer.clear();
+                int n;
+                do {
+                    n = channel.read(buffer);
+                } while (n == 0);
+                buffer.flip();
+                if (n < 0) return -1;
+            }
+            c = buffer.get() & 0xFF;
+            previous = current;
+            current = c;
+        }
+        position++;
+        return c;
+    }
+}
@@ -0,0 +1,96 @@
+package chess.pgn;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Writes games in PGN export format: the seven tag roster first and in
+ * its fixed order, the remaining tags after it, then the movetext with
+ * move numbers, wrapped before 80 columns and closed by the result.
+ */
+public class PgnWriter implements Closeable, Flushable {
+    private static final int LINE_LENGTH = 80;
+    private static final List<String> ROSTER = List.of("Event", "Site", "Date", "Round", "White", "Black", "Result");
+
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder(LINE_LENGTH);
+
+    public PgnWriter(Path path) throws IOException {
+        this(Files.newBufferedWriter(path, StandardCharsets.UTF_8));
+    }
+
+    public PgnWriter(Writer out) {
+        this.out = out;
+    }
+
+    public void write(PgnGame game) throws IOException {
+        Map<String, String> tags = game.getTags();
+
+        for (String name : ROSTER) {
+            String value = name.equals("Result") ? game.getResult() : tags.getOrDefault(name, "?");
+            writeTag(name, value);
+        }
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            if (!ROSTER.contains(tag.getKey())) writeTag(tag.getKey(), tag.getValue());
+        }
+        out.write('\n');
+
+        writeMovetext(game);
+        out.write("\n\n");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeTag(String name, String value) throws IOException {
+        out.write('[');
+        out.write(name);
+        out.write(" \"");
+        out.write(value.replace("\\", "\\\\").replace("\"", "\\\""));
+        out.write("\"]\n");
+    }
+
+    private void writeMovetext(PgnGame game) throws IOException {
+        // a game set up from FEN may start with black and at any move number
+        String[] fen = game.getTags().getOrDefault("FEN", "").split(" ");
+        boolean white = fen.length < 2 || !fen[1].equals("b");
+        int number = fen.length < 6 || !fen[5].matches("\\d+") ? 1 : Integer.parseInt(fen[5]);
+
+        line.setLength(0);
+        List<String> moves = game.getMoves();
+        for (int i = 0; i < moves.size(); i++) {
+            if (white) append(number + ".");
+            else if (i == 0) append(number + "...");
+
+            append(moves.get(i));
+            if (!white) number++;
+            white = !white;
+        }
+        append(game.getResult());
+        out.write(line.toString());
+    }
+
+    private void append(String token) throws IOException {
+        if (line.length() > 0 && line.length() + 1 + token.length() >= LINE_LENGTH) {
+            out.write(line.toString());
+            out.write('\n');
+            line.setLength(0);
+        }
+        if (line.length() > 0) line.append(' ');
+        line.append(token);
+    }
+}
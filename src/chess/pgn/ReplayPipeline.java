@@ -0,0 +1,215 @@
+package chess.pgn;
+
+import chess.ChessBoard;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/*
+ * Replays a PGN stream on several threads. The calling thread parses
+ * and hands games over in chunks through a bounded queue, so parsing
+ * blocks rather than running ahead when the workers fall behind. Each
+ * worker replays on one board of its own that every game resets, and
+ * counts into its own Stats, which are merged at the end.
+ *
+ * A worker that dies, from the visitor throwing or an Error, stops the run:
+ * the parser gives up instead of waiting for room in the queue, and
+ * run() throws what killed the worker.
+ */
+public class ReplayPipeline {
+    private static final List<PgnGame> END = Collections.emptyList();
+
+    private final int threads;
+    private final int chunkSize;
+    private final int queueChunks;
+    private BiConsumer<PgnGame, int[]> visitor;
+
+    public ReplayPipeline(int threads) {
+        this(threads, 256, 4 * threads);
+    }
+
+    // `queueChunks` chunks of `chunkSize` games at most wait between parser and workers
+    public ReplayPipeline(int threads, int chunkSize, int queueChunks) {
+        this.threads = Math.max(1, threads);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.queueChunks = Math.max(1, queueChunks);
+    }
+
+    /*
+     * Called on the worker threads with each game replayed without error
+     * and its moves, so it has to be thread safe.
+     */
+    public void setVisitor(BiConsumer<PgnGame, int[]> visitor) {
+        this.visitor = visitor;
+    }
+
+    public Stats run(PgnReader reader) throws IOException, InterruptedException {
+        BlockingQueue<List<PgnGame>> queue = new ArrayBlockingQueue<>(queueChunks);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        long start = System.nanoTime();
+
+        try {
+            List<Future<Stats>> workers = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) workers.add(pool.submit(() -> work(queue, failure)));
+
+            List<PgnGame> chunk = new ArrayList<>(chunkSize);
+            for (PgnGame game; (game = reader.next()) != null; ) {
+                chunk.add(game);
+                if (chunk.size() == chunkSize) {
+                    put(queue, chunk, failure);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) put(queue, chunk, failure);
+            for (int i = 0; i < threads; i++) put(queue, END, failure);
+
+            Stats total = new Stats();
+            for (Future<Stats> worker : workers) total.add(worker.get());
+            total.millis = (System.nanoTime() - start) / 1_000_000L;
+            return total;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error error) throw error;
+            throw failed(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // waits for room in the queue only while every worker is alive, a dead one takes nothing any more
+    private static void put(BlockingQueue<List<PgnGame>> queue, List<PgnGame> chunk,
+                            AtomicReference<Throwable> failure) throws InterruptedException {
+        do {
+            Throwable cause = failure.get();
+            if (cause instanceof Error error) throw error;
+            if (cause != null) throw failed(cause);
+        } while (!queue.offer(chunk, 50, TimeUnit.MILLISECONDS));
+    }
+
+    // what a worker died of, for the caller, who gets Errors as they are
+    private static RuntimeException failed(Throwable cause) {
+        return new IllegalStateException("Replay worker failed", cause);
+    }
+
+    private Stats work(BlockingQueue<List<PgnGame>> queue, AtomicReference<Throwable> failure)
+            throws InterruptedException {
+        ChessBoard board = new ChessBoard();
+        Stats stats = new Stats();
+
+        try {
+            for (List<PgnGame> chunk; (chunk = queue.take()) != END; ) {
+                for (PgnGame game : chunk) replay(board, game, stats);
+            }
+            return stats;
+        } catch (Throwable t) {
+            // whatever ends a worker early, the parser must not wait on it
+            failure.compareAndSet(null, t);
+            throw t;
+        }
+    }
+
+    private void replay(ChessBoard board, PgnGame game, Stats stats) {
+        stats.games++;
+
+        switch (game.getResult()) {
+            case "1-0" -> stats.whiteWins++;
+            case "0-1" -> stats.blackWins++;
+            case "1/2-1/2" -> stats.draws++;
+            default -> stats.unfinished++;
+        }
+
+        int[] moves;
+        try {
+            moves = game.replay(board);
+        } catch (RuntimeException e) {
+            // a broken game is counted and skipped, only a failing visitor stops the run
+            stats.errors++;
+            if (stats.errorSamples.size() < Stats.MAX_SAMPLES) stats.errorSamples.add(game + ": " + e.getMessage());
+            return;
+        }
+        stats.plies += moves.length;
+        if (visitor != null) visitor.accept(game, moves);
+    }
+
+    // counts over all games, errors are games with an illegal move or a bad FEN tag
+    public static final class Stats {
+        private static final int MAX_SAMPLES = 10;
+
+        private long games;
+        private long plies;
+        private long whiteWins;
+        private long blackWins;
+        private long draws;
+        private long unfinished;
+        private long errors;
+        private long millis;
+        private final List<String> errorSamples = new ArrayList<>();
+
+        public long getGames() {
+            return games;
+        }
+
+        public long getPlies() {
+            return plies;
+        }
+
+        public long getWhiteWins() {
+            return whiteWins;
+        }
+
+        public long getBlackWins() {
+            return blackWins;
+        }
+
+        public long getDraws() {
+            return draws;
+        }
+
+        public long getUnfinished() {
+            return unfinished;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        // the first few errors, with the game they happened in
+        public List<String> getErrorSamples() {
+            return errorSamples;
+        }
+
+        private void add(Stats other) {
+            games += other.games;
+            plies += other.plies;
+            whiteWins += other.whiteWins;
+            blackWins += other.blackWins;
+            draws += other.draws;
+            unfinished += other.unfinished;
+            errors += other.errors;
+            for (String sample : other.errorSamples) {
+                if (errorSamples.size() < MAX_SAMPLES) errorSamples.add(sample);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("games %d  plies %d  1-0 %d  0-1 %d  1/2 %d  * %d  errors %d  time %.3f s",
+                    games, plies, whiteWins, blackWins, draws, unfinished, errors, millis / 1e3);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package chess.pgn;
+
+import chess.Bitboard;
+import chess.ChessBoard;
+import chess.ChessConstants;
+import chess.Move;
+import chess.MoveList;
+
+/*
+ * Standard algebraic notation, e.g. "Nbd7", "exd5", "e8=Q+" or "O-O".
+ * Parsing matches against the board's legal moves, so a SAN string is
+ * only resolved if it names exactly one of them.
+ */
+public final class San {
+    private static final String PIECE_LETTERS = "PNBRQK";
+
+    private San() {}
+
+    /*
+     * The legal move on `board` that `san` names, or Move.NONE if it is
+     * malformed, illegal or ambiguous. Check and annotation suffixes are
+     * ignored, as are zeros written for castling and a missing "=" before
+     * a promotion piece.
+     */
+    public static int parse(ChessBoard board, String san) {
+        int end = san.length();
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) end--;
+        String s = san.substring(0, end);
+
+        if (s.equals("O-O") || s.equals("0-0")) return castle(board, true);
+        if (s.equals("O-O-O") || s.equals("0-0-0")) return castle(board, false);
+        if (s.length() < 2) return Move.NONE;
+
+        int piece = ChessConstants.PAWN;
+        int start = 0;
+        if (PIECE_LETTERS.indexOf(s.charAt(0)) > 0) {
+            piece = PIECE_LETTERS.indexOf(s.charAt(0));
+            start = 1;
+        }
+
+        int promotion = Move.NO_PIECE;
+        int last = s.length() - 1;
+        if (PIECE_LETTERS.indexOf(s.charAt(last)) > 0) {
+            promotion = PIECE_LETTERS.indexOf(s.charAt(last));
+            last--;
+            if (last >= 0 && s.charAt(last) == '=') last--;
+        }
+        if (last - 1 < start) return Move.NONE;
+
+        int to = square(s.charAt(last - 1), s.charAt(last));
+        if (to < 0) return Move.NONE;
+
+        // whatever is left between piece and destination narrows down the origin
+        int fromCol = -1;
+        int fromRow = -1;
+        for (int i = start; i < last - 1; i++) {
+            char c = s.charAt(i);
+
+            if (c >= 'a' && c <= 'h') fromCol = c - 'a';
+            else if (c >= '1' && c <= '8') fromRow = '8' - c;
+            else if (c != 'x' && c != '-' && c != ':') return Move.NONE;
+        }
+
+        MoveList moves = board.legalMoves();
+        int found = Move.NONE;
+
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+
+            if (Move.piece(move) != piece || Move.to(move) != to || Move.promotion(move) != promotion) continue;
+            if (fromCol >= 0 && Bitboard.col(Move.from(move)) != fromCol) continue;
+            if (fromRow >= 0 && Bitboard.row(Move.from(move)) != fromRow) continue;
+            if ((Move.flags(move) & Move.CASTLE) != 0) continue;
+
+            if (found != Move.NONE) return Move.NONE;
+            found = move;
+        }
+        return found;
+    }
+
+    /*
+     * `move`, legal on `board`, in SAN with the check or mate suffix. The
+     * move is played and taken back on the board to find the suffix.
+     */
+    public static String toSan(ChessBoard board, int move) {
+        StringBuilder sb = new StringBuilder(8);
+        int piece = Move.piece(move);
+        int from = Move.from(move);
+        int to = Move.to(move);
+
+        if ((Move.flags(move) & Move.CASTLE) != 0) {
+            sb.append(to > from ? "O-O" : "O-O-O");
+        } else {
+            if (piece == ChessConstants.PAWN) {
+                if (Move.isCapture(move)) sb.append((char) ('a' + Bitboard.col(from)));
+            } else {
+                sb.append(PIECE_LETTERS.charAt(piece));
+                disambiguate(sb, board.legalMoves(), move);
+            }
+            if (Move.isCapture(move)) sb.append('x');
+            sb.append(ChessBoard.Position.of(to));
+            if (Move.isPromotion(move)) sb.append('=').append(PIECE_LETTERS.charAt(Move.promotion(move)));
+        }
+
+        board.makeMove(move);
+        if (board.isInCheck(board.isWhiteToMove())) sb.append(board.hasLegalMove() ? '+' : '#');
+        board.unmakeMove();
+
+        return sb.toString();
+    }
+
+    // file if that tells the pieces apart, else rank, else both
+    private static void disambiguate(StringBuilder sb, MoveList moves, int move) {
+        int from = Move.from(move);
+        boolean ambiguous = false;
+        boolean sameCol = false;
+        boolean sameRow = false;
+
+        for (int i = 0; i < moves.size(); i++) {
+            int other = moves.get(i);
+            int otherFrom = Move.from(other);
+
+            if (otherFrom == from || Move.piece(other) != Move.piece(move) || Move.to(other) != Move.to(move)) continue;
+
+            ambiguous = true;
+            if (Bitboard.col(otherFrom) == Bitboard.col(from)) sameCol = true;
+            if (Bitboard.row(otherFrom) == Bitboard.row(from)) sameRow = true;
+        }
+
+        if (!ambiguous) return;
+        if (!sameCol) {
+            sb.append((char) ('a' + Bitboard.col(from)));
+        } else if (!sameRow) {
+            sb.append((char) ('8' - Bitboard.row(from)));
+        } else {
+            sb.append(ChessBoard.Position.of(from));
+        }
+    }
+
+    private static int castle(ChessBoard board, boolean kingside) {
+        MoveList moves = board.legalMoves();
+
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+
+            if ((Move.flags(move) & Move.CASTLE) != 0 && (Move.to(move) > Move.from(move)) == kingside) return move;
+        }
+        return Move.NONE;
+    }
+
+    private static int square(char file, char rank) {
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') return -1;
+        return Bitboard.square('8' - rank, file - 'a');
+    }
+}
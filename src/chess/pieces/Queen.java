@@ -1,38 +1,23 @@
 package chess.pieces;
 
+import chess.Attacks;
 import chess.ChessBoard;
-import chess.ChessPiece;
 import chess.ChessConstants;
-
-import java.util.ArrayList;
-import java.util.List;
+import chess.ChessPiece;
 
 public class Queen extends ChessPiece {
     public Queen(int row, int col, boolean white, ChessBoard board) {
-        super(row, col, white, board, white ? "\u2655" : "\u265B");
+        super(row, col, white, board, white ? "\u2655" : "\u265B", ChessConstants.QUEEN);
         this.value = ChessConstants.QUEEN_VALUE;
     }
 
-
-    @Override
-    public List<ChessBoard.Position> getLegalMoves() {
-        List<ChessBoard.Position> ret = new ArrayList<>();
-
-        addLineMoves(getPosition(), ret);
-        addDiagonalMoves(getPosition(), ret);
-        return ret;
-    }
-
     @Override
-    public boolean isLegalMove(ChessBoard.Position newPosition) {
-        return super.isLegalMove(newPosition) &&
-                (this.getPosition().onDiagonal(newPosition) ||
-                        this.getPosition().sameRowOrCol(newPosition)) &&
-                !isBlocked(newPosition);
+    public long attacks() {
+        return Attacks.queen(getSquare(), getBoard().getOccupied());
     }
 
     @Override
     public String toString() {
         return isWhite() ? "Q" : "q";
     }
-}
\ No newline at end of file
+}
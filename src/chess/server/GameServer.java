@@ -0,0 +1,313 @@
+package chess.server;
+
+import chess.ChessGame;
+import chess.engine.ChessEngine;
+import chess.engine.Engine;
+import chess.engine.EnginePool;
+import chess.engine.SearchEngine;
+import chess.engine.SearchLimits;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Hosts games over HTTP, no Swing involved. Every request runs on a
+ * virtual thread of its own, a game is one ChessGame guarded by its own
+ * lock, so any number of games can be played at once. The locks are
+ * ReentrantLocks, a virtual thread waiting on one, or holding one through
+ * an engine search, does not pin its carrier thread.
+ *
+ *   POST   /games              new game, the body may hold a FEN to start from
+ *   GET    /games/{id}         state of the game
+ *   POST   /games/{id}/moves   plays the move in the body, e.g. "e2e4" or "e7e8q"
+ *   POST   /games/{id}/engine  the engine plays for the side to move, ?movetime=ms
+ *   DELETE /games/{id}         ends the game
+ *
+ * Answers are JSON. Games nobody touched for IDLE_MINUTES are dropped.
+ */
+public class GameServer {
+    private static final long IDLE_MINUTES = 30;
+    private static final int DEFAULT_MOVETIME = 1000;
+    private static final int MAX_MOVETIME = 10_000;
+    private static final int MAX_BODY = 1024;
+
+    private final HttpServer server;
+    private final ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor();
+    private final Map<String, Session> games = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    // engines for the replies: processes of an external engine, or else built-in searchers
+    private final EnginePool external;
+    private final BlockingQueue<SearchEngine> builtIn = new LinkedBlockingQueue<>();
+
+    private static final class Session {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ChessGame game = new ChessGame();
+        private volatile long lastUsed = System.nanoTime();
+    }
+
+    private static final class HttpError extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /*
+     * Serves on `port` with `engines` engines for the replies, processes
+     * of `enginePath` if it is not null, otherwise built-in searchers.
+     */
+    public GameServer(int port, String enginePath, int engines) throws IOException {
+        external = enginePath == null ? null : new EnginePool(enginePath, engines);
+        if (external == null) {
+            for (int i = 0; i < Math.max(1, engines); i++) builtIn.add(new SearchEngine());
+        }
+
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(requests);
+        server.createContext("/games", this::handle);
+    }
+
+    public void start() {
+        server.start();
+        sweeper.scheduleAtFixedRate(this::dropIdle, IDLE_MINUTES, IDLE_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public void stop() {
+        server.stop(0);
+        sweeper.shutdownNow();
+        requests.shutdownNow();
+        if (external != null) external.close();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public int getGameCount() {
+        return games.size();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            // "", "/{id}" or "/{id}/{action}"
+            String[] path = exchange.getRequestURI().getPath().substring("/games".length()).split("/");
+            String id = path.length > 1 ? path[1] : null;
+            String action = path.length > 2 ? path[2] : null;
+
+            try {
+                if (id == null && method.equals("POST")) {
+                    respond(exchange, 201, create(body(exchange)));
+                } else if (id != null && action == null && method.equals("GET")) {
+                    Session session = session(id);
+                    String state;
+                    session.lock.lock();
+                    try {
+                        state = state(id, session.game);
+                    } finally {
+                        session.lock.unlock();
+                    }
+                    respond(exchange, 200, state);
+                } else if (id != null && action == null && method.equals("DELETE")) {
+                    if (games.remove(id) == null) throw new HttpError(404, "No game " + id);
+                    respond(exchange, 204, null);
+                } else if (id != null && "moves".equals(action) && method.equals("POST")) {
+                    respond(exchange, 200, move(id, body(exchange)));
+                } else if (id != null && "engine".equals(action) && method.equals("POST")) {
+                    respond(exchange, 200, engineMove(id, movetime(exchange.getRequestURI())));
+                } else {
+                    throw new HttpError(404, "No such resource");
+                }
+            } catch (HttpError e) {
+                respond(exchange, e.status, "{\"error\":" + quote(e.getMessage()) + "}");
+            } catch (RuntimeException e) {
+                respond(exchange, 500, "{\"error\":" + quote(String.valueOf(e.getMessage())) + "}");
+            }
+        }
+    }
+
+    private String create(String fen) throws HttpError {
+        Session session = new Session();
+        if (!fen.isBlank()) {
+            try {
+                session.game.loadFen(fen.strip());
+            } catch (IllegalArgumentException e) {
+                throw new HttpError(400, e.getMessage());
+            }
+        }
+        String id = Long.toString(nextId.getAndIncrement());
+        games.put(id, session);
+        return state(id, session.game);
+    }
+
+    private String move(String id, String uci) throws HttpError {
+        Session session = session(id);
+        session.lock.lock();
+        try {
+            ChessGame game = session.game;
+            if (termination(game) != null) throw new HttpError(409, "Game over");
+            if (!game.moveUci(uci.strip())) throw new HttpError(400, "Illegal move: " + uci.strip());
+            return state(id, game);
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    // the game stays locked while the engine thinks, moves sent meanwhile wait for its reply
+    private String engineMove(String id, int movetime) throws HttpError {
+        Session session = session(id);
+        session.lock.lock();
+        try {
+            ChessGame game = session.game;
+            if (termination(game) != null) throw new HttpError(409, "Game over");
+
+            String bestmove = search(game, movetime);
+            if (!game.moveUci(bestmove)) throw new HttpError(502, "Engine played an illegal move: " + bestmove);
+            return state(id, game);
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    // an engine that fails is a bad gateway, one that cannot be had since the server stops is unavailable
+    private String search(ChessGame game, int movetime) throws HttpError {
+        Engine engine = null;
+        try {
+            try {
+                engine = external != null ? external.lease() : builtIn.take();
+            } catch (IllegalStateException e) {
+                throw new HttpError(503, "Engine pool closed");
+            }
+            engine.position(game.getStartFen(), game.log());
+            String[] bestmove = engine.go(SearchLimits.movetime(movetime)).bestmove().split("\\s+");
+            if (bestmove.length < 2) throw new HttpError(502, "No move from the engine");
+            return bestmove[1];
+        } catch (IOException e) {
+            throw new HttpError(502, "Engine failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HttpError(503, "Interrupted");
+        } finally {
+            if (engine instanceof ChessEngine process) external.release(process);
+            else if (engine instanceof SearchEngine searcher) builtIn.add(searcher);
+        }
+    }
+
+    private Session session(String id) throws HttpError {
+        Session session = games.get(id);
+        if (session == null) throw new HttpError(404, "No game " + id);
+        session.lastUsed = System.nanoTime();
+        return session;
+    }
+
+    private void dropIdle() {
+        long limit = System.nanoTime() - TimeUnit.MINUTES.toNanos(IDLE_MINUTES);
+        games.values().removeIf(session -> session.lastUsed < limit);
+    }
+
+    private static String state(String id, ChessGame game) {
+        String termination = termination(game);
+        List<String> log = game.log();
+
+        StringBuilder sb = new StringBuilder(128 + log.size() * 8);
+        sb.append("{\"id\":").append(quote(id))
+                .append(",\"fen\":").append(quote(game.getFen()))
+                .append(",\"turn\":").append(game.isWhiteTurn() ? "\"white\"" : "\"black\"")
+                .append(",\"check\":").append(game.hasCheck())
+                .append(",\"status\":").append(quote(termination == null ? "ongoing" : termination))
+                .append(",\"result\":").append(quote(result(game, termination)))
+                .append(",\"moves\":[");
+        for (int i = 0; i < log.size(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append('"').append(log.get(i)).append('"');
+        }
+        return sb.append("]}").toString();
+    }
+
+    // why the game is over, null while it is not
+    private static String termination(ChessGame game) {
+        if (game.hasCheckMate()) return "checkmate";
+        if (game.hasStaleMate()) return "stalemate";
+        if (game.hasThreefoldRepetition()) return "threefold repetition";
+        if (game.hasFiftyMoveRule()) return "fifty move rule";
+        if (game.hasInsufficientMaterial()) return "insufficient material";
+        return null;
+    }
+
+    private static String result(ChessGame game, String termination) {
+        if (termination == null) return "*";
+        if (!termination.equals("checkmate")) return "1/2-1/2";
+        return game.isWhiteTurn() ? "0-1" : "1-0";
+    }
+
+    private static int movetime(URI uri) throws HttpError {
+        String query = uri.getQuery();
+        if (query == null) return DEFAULT_MOVETIME;
+
+        for (String param : query.split("&")) {
+            if (param.startsWith("movetime=")) {
+                try {
+                    return Math.clamp(Integer.parseInt(param.substring("movetime=".length())), 1, MAX_MOVETIME);
+                } catch (NumberFormatException e) {
+                    throw new HttpError(400, "Bad movetime");
+                }
+            }
+        }
+        return DEFAULT_MOVETIME;
+    }
+
+    private static String body(HttpExchange exchange) throws IOException, HttpError {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY + 1);
+            if (bytes.length > MAX_BODY) throw new HttpError(413, "Body too large");
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        if (json == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < ' ') sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -1,10 +1,16 @@
 package chess.ui;
 
+import chess.Bitboard;
 import chess.ChessBoard;
 import chess.ChessGame;
 import chess.ChessPiece;
 import chess.ChessConstants;
+import chess.Move;
+import chess.book.PolyglotBook;
 import chess.engine.ChessEngine;
+import chess.engine.Engine;
+import chess.engine.SearchEngine;
+import chess.engine.SearchLimits;
 import chess.pieces.Bishop;
 import chess.pieces.Knight;
 import chess.pieces.Queen;
@@ -17,6 +23,8 @@ import javax.swing.event.MouseInputAdapter;
 import java.awt.*;
 import java.awt.event.*;
 import java.io.IOException;
+import java.io.Serial;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
@@ -39,10 +47,14 @@ public class ChessUI extends JFrame {
     /*
      * Engine
      */
-    private final List<ChessEngine> engineList = new ArrayList<>();
-    private ChessEngine blackEngine;
-    private ChessEngine whiteEngine;
+    private static final int ENGINE_MOVETIME = 2000;
+    private final List<Engine> engineList = new ArrayList<>();
+    private Engine blackEngine;
+    private Engine whiteEngine;
     private EngineHandler engineHandler;
+    // book moves are played for the engines without asking them, while there are any
+    private transient volatile PolyglotBook book;
+    private final Random bookRandom = new Random();
 
 
     public ChessUI() {
@@ -100,21 +112,36 @@ public class ChessUI extends JFrame {
 
 
     private boolean moveIfLegal(ChessBoard.Position oldPosition, ChessBoard.Position newPosition) {
+        return moveIfLegal(oldPosition, newPosition, null);
+    }
+
+    // `promotion` is the piece class an engine promoted to, null asks the user
+    private boolean moveIfLegal(ChessBoard.Position oldPosition, ChessBoard.Position newPosition,
+                                Class<?> promotion) {
         boolean moved = game.moveIfLegal(oldPosition, newPosition);
         if (moved) {
             if (game.isEnPassantMove()) {
-                int row = game.getBoard().getEnPassantPiece().row();
-                int col = game.getBoard().getEnPassantPiece().col();
+                int row = game.getEnPassantCapture().row();
+                int col = game.getEnPassantCapture().col();
                 squares[row][col].setText(null);
+            } else if (game.isCastleMove()) {
+                ChessBoard.Position[] rook = game.getCastleRook();
+                squares[rook[0].row()][rook[0].col()].setText(null);
+                squares[rook[1].row()][rook[1].col()]
+                        .setText(game.getBoard().getPiece(rook[1]).getSymbol());
             } else if (game.hasPromotion()) {
-                new PromotionDialog(oldPosition, newPosition);
+                if (promotion == null) {
+                    new PromotionDialog(oldPosition, newPosition);
+                } else {
+                    game.promote(oldPosition, newPosition, promotion);
+                }
             }
             squares[oldPosition.row()][oldPosition.col()].setText(null);
             squares[newPosition.row()][newPosition.col()]
                     .setText(game.getBoard().getPiece(newPosition).getSymbol());
 
-            if (game.hasCheck()) {
-                if (game.hasCheckMate()) {
+            if (game.hasCheck() || game.hasStaleMate()) {
+                if (game.hasCheckMate() || game.hasStaleMate()) {
                     switch (getGameOverOptions()) {
                         case 0: resetGame();
                             return false;
@@ -243,11 +270,11 @@ public class ChessUI extends JFrame {
         }
 
         private boolean hlLegalMoves(ChessBoard.Position position) {
-            for (ChessBoard.Position move : game.getBoard()
-                    .getPiece(position)
-                    .getLegalMoves())
-            {
-                SquareComponent square = squares[move.row()][move.col()];
+            long targets = game.getBoard().legalTargets(Bitboard.square(position));
+
+            for (; targets != Bitboard.EMPTY; targets = Bitboard.clearFirst(targets)) {
+                int to = Bitboard.first(targets);
+                SquareComponent square = squares[Bitboard.row(to)][Bitboard.col(to)];
                 hlSquares.add(square);
                 square.highlight.setVisible(true);
             }
@@ -419,7 +446,7 @@ public class ChessUI extends JFrame {
     }
 
     private int getGameOverOptions() {
-        JLabel message = new JLabel("Checkmate: " +
+        JLabel message = new JLabel(game.hasStaleMate() ? "Stalemate: Draw " : "Checkmate: " +
                 ((game.isWhiteTurn() ? "Black " : "White ") + "Wins "));
 
         message.setFont(new Font("SansSerif", Font.BOLD, 18));
@@ -445,6 +472,12 @@ public class ChessUI extends JFrame {
 
 
     private class EngineHandler extends SwingWorker<ChessEngine.GoResult, Void> {
+        // the game as it is when the handler is made, on the event thread, which owns the game
+        private final Engine engine = game.isWhiteTurn() ? whiteEngine : blackEngine;
+        private final String startFen = game.getStartFen();
+        private final List<String> moves = List.copyOf(game.log());
+        private final String fen = game.getFen();
+
         @Override
         protected void done() {
             try {
@@ -459,9 +492,15 @@ public class ChessUI extends JFrame {
                     ChessBoard.Position newpos = new ChessBoard.Position(move.substring(2, 4));
                     moveIfLegal(oldpos, newpos);
                 } else if (move.length() == 5) {
-                    /*
-                     * promotion
-                     */
+                    ChessBoard.Position oldpos = new ChessBoard.Position(move.substring(0, 2));
+                    ChessBoard.Position newpos = new ChessBoard.Position(move.substring(2, 4));
+                    Class<?> promotion = switch (move.charAt(4)) {
+                        case 'r' -> Rook.class;
+                        case 'b' -> Bishop.class;
+                        case 'n' -> Knight.class;
+                        default -> Queen.class;
+                    };
+                    moveIfLegal(oldpos, newpos, promotion);
                 } else {
                     throw new RuntimeException();
                 }
@@ -488,11 +527,16 @@ public class ChessUI extends JFrame {
 
         @Override
         public ChessEngine.GoResult doInBackground() throws IOException {
-            ChessEngine engine = game.isWhiteTurn() ? whiteEngine : blackEngine;
+            if (book != null) {
+                ChessBoard board = new ChessBoard();
+                board.loadFen(fen);
+                int move = book.pick(board, bookRandom);
+                if (move != Move.NONE) return new ChessEngine.GoResult(List.of(), "bestmove " + Move.toUci(move));
+            }
 
-            engine.position(String.join(" ", game.log()));
+            engine.position(startFen, moves);
 
-            return engine.go(2000);
+            return engine.go(SearchLimits.movetime(ENGINE_MOVETIME));
         }
     }
 
@@ -566,6 +610,32 @@ public class ChessUI extends JFrame {
             });
             menu.add(item);
 
+            // built-in engine, searches in-process
+            item = new JMenuItem("Add Built-in Engine");
+            item.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_3, InputEvent.ALT_DOWN_MASK));
+            item.addActionListener(e -> {
+                engineList.add(new SearchEngine());
+
+                String message = "Added Chess Engine: " + engineList.getLast().name()
+                        + "  -  [ ID: " + engineList.size() + " ]";
+                String[] options = {"ENGINE LIST", "  CLOSE  "};
+                if (JOptionPane.showOptionDialog(ChessUI.this,
+                        message, null,
+                        JOptionPane.YES_NO_OPTION,
+                        JOptionPane.INFORMATION_MESSAGE, null,
+                        options, options[1]) == 0)
+                {
+                    new EngineListDialog();
+                }
+            });
+            menu.add(item);
+
+            // polyglot opening book for the engines
+            item = new JMenuItem("Opening Book");
+            item.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_4, InputEvent.ALT_DOWN_MASK));
+            item.addActionListener(e -> new OpeningBookDialog());
+            menu.add(item);
+
             add(menu);
         }
     }
@@ -630,7 +700,7 @@ public class ChessUI extends JFrame {
                 c.ipadx = 0;
                 int id = 0;
                 while (id < engineList.size()) {
-                    ChessEngine e = engineList.get(id++);
+                    Engine e = engineList.get(id++);
                     c.gridy = id;
 
                     c.gridx = 0;
@@ -784,4 +854,59 @@ public class ChessUI extends JFrame {
             setVisible(true);
         }
     }
-}
\ No newline at end of file
+
+    private class OpeningBookDialog extends JDialog {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private JPanel panel;
+        private JButton button;
+
+        public OpeningBookDialog() {
+            panel = new JPanel();
+            panel.add(new JLabel(book == null ? "Load a Polyglot Opening Book" : "Opening Book loaded"));
+            add(panel, BorderLayout.NORTH);
+
+            panel = new JPanel();
+            panel.add(new JLabel("Book (.bin): "));
+            JTextField bookBox = new JTextField(35);
+            panel.add(bookBox);
+            add(panel, BorderLayout.CENTER);
+
+            // south panel
+            panel = new JPanel();
+            panel.setBorder(new EmptyBorder(25, 0, 0, 0));
+            button = new JButton("  OK  ");
+            button.addActionListener(f -> {
+                try {
+                    book = new PolyglotBook(Path.of(bookBox.getText().strip()));
+                    dispose();
+                } catch (IOException | RuntimeException e) {
+                    JOptionPane.showMessageDialog(this,
+                            e.getMessage(), "ERROR",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            });
+            panel.add(button);
+
+            // unload button
+            button = new JButton("NO BOOK");
+            button.addActionListener(e -> {
+                book = null;
+                dispose();
+            });
+            panel.add(button);
+
+            button = new JButton("CANCEL");
+            button.addActionListener(e -> dispose());
+            panel.add(button);
+            add(panel, BorderLayout.SOUTH);
+
+            pack();
+            setModalityType(ModalityType.TOOLKIT_MODAL);
+            setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+            setLocationRelativeTo(ChessUI.this);
+            setVisible(true);
+        }
+    }
+}